@@ -0,0 +1,149 @@
+package space;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH-бенчмарки горячих путей SpaceGame. Одна операция = один тик
+ * (или один вызов измеряемого шага), поэтому ns/op читается как ns/tick,
+ * а gc.alloc.rate.norm из -prof gc — как байт аллокаций на тик.
+ *
+ *   ant bench
+ *   ant bench -Dbench.args="GameBench.tick -p ast=256"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBench {
+
+    private static final int W = 240, H = 320;
+
+    /** Ёмкость и целевое число астероидов на экране. */
+    @Param({"16", "64", "256"})
+    public int ast;
+
+    private SpaceGame game;      // ast астероидов + 10 неподвижных пуль — для запросов коллизий
+    private SpaceGame play;      // для tick(): без подставных пуль, слоты пуль свободны под стрельбу
+    private SpaceGame churn;     // ast астероидов + запас слотов под осколки
+    private int botSeed, t;
+
+    @Setup
+    public void setup() {
+        game = new SpaceGame(W, H, ast, 10, 4);
+        botSeed = 42;
+        t = 0;
+        fill(game, ast);
+        play = new SpaceGame(W, H, ast, 10, 4);
+        fill(play, ast);
+        churn = new SpaceGame(W, H, ast + 8, 10, 4);
+        fill(churn, ast);
+        // пули в разных местах экрана: половина попадает в ячейки с астероидами;
+        // стоят на месте, чтобы updateEntities их не уносил
+        Entities en = game.ent;
+        for (int i = 0; i < 10; i++) {
+            int b = en.alloc(Entities.T_BUL);
+            en.place(b, 12 + i * (W - 24) / 9, 20 + i * (H - 40) / 9);
+            en.vx[b] = en.vy[b] = en.r[b] = 0;
+            en.oy[b] = en.y[b] + game.cell;   // путь за тик, как у летящей пули
+            en.anim(b, 0, 1, 0, 0);
+        }
+    }
+
+    // добить астероидов до ast, разбросав их по экрану
+    private static void fill(SpaceGame g, int n) {
+        while (g.ent.count[Entities.T_AST] < n) {
+            int x = 16 + (g.rnd() % (W - 32));
+            int y = g.rnd() % H;
+            int kind = g.rnd() % 3, vx = ((g.rnd() % 5) - 2) << SpaceGame.FX;
+            if (g.spawnChildAsteroid(x << SpaceGame.FX, y << SpaceGame.FX, kind, vx) < 0) break;
+        }
+    }
+
+    /** Полный тик с ботом: ввод, пули, спавн, движение, звёзды, коллизии. */
+    @Benchmark
+    public int tick() {
+        if ((t & 7) == 0) botSeed = (botSeed * 1103515245 + 12345) & 0x7fffffff;
+        int dir = botSeed % 3;
+        int ks = (dir == 0) ? SpaceGame.K_LEFT : (dir == 1 ? SpaceGame.K_RIGHT : 0);
+        if ((t++ & 1) == 0) ks |= SpaceGame.K_FIRE;
+        SpaceGame g = play;
+        g.tick(ks);
+        if (g.gameOver) g.reset();
+        if (g.ent.count[Entities.T_AST] < ast / 2) fill(g, ast);
+        return g.score;
+    }
+
+    /** Общий проход движения и анимации: ast астероидов + 10 пуль, перекладка в сетке. */
+    @Benchmark
+    public int updateEntities() {
+        game.updateEntities();
+        int n = game.ent.count[Entities.T_AST];
+        if (n < ast) fill(game, ast);   // упавшие за экран заменяем новыми
+        return n;
+    }
+
+    /** 10 пуль против ast астероидов через сетку (без взрывов — только запросы). */
+    @Benchmark
+    public void bulletVsAsteroidGrid(Blackhole bh) {
+        SpaceGame g = game;
+        Entities en = g.ent;
+        int[] bul = en.list[Entities.T_BUL];
+        for (int k = 0; k < en.count[Entities.T_BUL]; k++) {
+            int b = bul[k];
+            bh.consume(g.bulletHit(en.ox[b], en.oy[b], en.x[b], en.y[b]));
+        }
+    }
+
+    /** То же полным перебором — для сравнения с сеткой. */
+    @Benchmark
+    public void bulletVsAsteroidBrute(Blackhole bh) {
+        Entities en = game.ent;
+        int[] bul = en.list[Entities.T_BUL], as = en.list[Entities.T_AST];
+        for (int kb = 0; kb < en.count[Entities.T_BUL]; kb++) {
+            int b = bul[kb], hit = -1;
+            for (int ka = 0; ka < en.count[Entities.T_AST]; ka++) {
+                int a = as[ka];
+                if (SpaceGame.sweepCircle(en.ox[b] - en.ox[a], en.oy[b] - en.oy[a],
+                        en.x[b] - en.x[a], en.y[b] - en.y[a], en.r[a]) >= 0) { hit = a; break; }
+            }
+            bh.consume(hit);
+        }
+    }
+
+    /** Спавн L и полный распад через explodeAsteroid: L → 2×M → 4×S → взрывы. */
+    @Benchmark
+    public int splitChurn() {
+        SpaceGame g = churn;
+        Entities en = g.ent;
+        en.releaseAll(Entities.T_EXP);   // взрывы живут 20 тиков — в бенче их не ждём
+        int l = g.spawnChildAsteroid((W/2) << SpaceGame.FX, (H/2) << SpaceGame.FX, 2, 0);
+        if (l < 0) return 0;
+        int base = en.count[Entities.T_AST] - 1;   // всё, что появится после L, — его осколки
+        g.explodeAsteroid(l);
+        while (en.count[Entities.T_AST] > base)
+            g.explodeAsteroid(en.list[Entities.T_AST][en.count[Entities.T_AST] - 1]);
+        en.releaseAll(Entities.T_PWR);
+        return en.count[Entities.T_EXP];
+    }
+
+    /** LCG игры. */
+    @Benchmark
+    public int lcg() {
+        return game.rnd();
+    }
+}
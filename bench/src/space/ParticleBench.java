@@ -0,0 +1,56 @@
+package space;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Цена тика частиц. Одна операция = Particles.update() при n живых из
+ * SpaceGame.PARTICLES, так что цена на 100 частиц = ns/op × 100 / n.
+ * На телефоне то же самое (вместе с отрисовкой) показывает строка
+ * "part" оверлея профайлера.
+ *
+ *   ant bench -Dbench.args="ParticleBench"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParticleBench {
+
+    @Param({"100", "256"})
+    public int n;
+
+    private Particles parts;
+
+    @Setup
+    public void setup() {
+        parts = new Particles(SpaceGame.PARTICLES);
+        parts.limit = n;
+        fill();
+    }
+
+    // как обломки астероида: разброс ±2.5 px/тик, жизнь 8..15 тиков
+    private void fill() {
+        while (parts.live < n) parts.burst(Particles.T_DEBRIS, n - parts.live, 120, 160, 0, 0, 5 << 15, 8);
+    }
+
+    @Benchmark
+    public int update() {
+        parts.update();
+        if (parts.live < n) fill();   // умершие сразу заменяем
+        return parts.maxX;
+    }
+}
@@ -0,0 +1,84 @@
+package space;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * Сборка атласа на этапе build: листы-полоски кадров перекладываются в одну
+ * картинку (кадры переносятся на новую строку по ширине атласа, блоки листов
+ * раскладываются полками по убыванию высоты) + индекс atlas.bin для Atlas.
+ *
+ *   AtlasPacker <src dir> <out dir> <ширина атласа> имя:ширина_кадра ...
+ *
+ * Индекс: count (short), затем на лист: имя (UTF), x, y, fw, fh (short), frames, cols (byte).
+ */
+public class AtlasPacker {
+
+    public static void main(String[] args) throws IOException {
+        File src = new File(args[0]), out = new File(args[1]);
+        int atlasW = Integer.parseInt(args[2]);
+        int n = args.length - 3;
+
+        String[] name = new String[n];
+        BufferedImage[] sheet = new BufferedImage[n];
+        int[] fw = new int[n], fh = new int[n], frames = new int[n], cols = new int[n];
+        int[] bw = new int[n], bh = new int[n], x = new int[n], y = new int[n];
+        long srcBytes = 0;
+        for (int i = 0; i < n; i++) {
+            int c = args[3 + i].indexOf(':');
+            name[i] = args[3 + i].substring(0, c);
+            fw[i] = Integer.parseInt(args[3 + i].substring(c + 1));
+            File f = new File(src, name[i] + ".png");
+            sheet[i] = ImageIO.read(f);
+            srcBytes += f.length();
+            fh[i] = sheet[i].getHeight();
+            frames[i] = sheet[i].getWidth() / fw[i];
+            cols[i] = Math.max(1, Math.min(frames[i], atlasW / fw[i]));
+            bw[i] = cols[i] * fw[i];
+            bh[i] = ((frames[i] + cols[i] - 1) / cols[i]) * fh[i];
+        }
+
+        // полки: сначала самые высокие блоки
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        java.util.Arrays.sort(order, (a, b) -> bh[b] - bh[a]);
+        int sx = 0, sy = 0, shelfH = 0;
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            if (sx + bw[i] > atlasW) { sx = 0; sy += shelfH; shelfH = 0; }
+            x[i] = sx; y[i] = sy;
+            sx += bw[i];
+            shelfH = Math.max(shelfH, bh[i]);
+        }
+        int atlasH = sy + shelfH;
+
+        BufferedImage atlas = new BufferedImage(atlasW, atlasH, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < n; i++) {
+            for (int f = 0; f < frames[i]; f++) {
+                int dx = x[i] + (f % cols[i]) * fw[i], dy = y[i] + (f / cols[i]) * fh[i];
+                for (int py = 0; py < fh[i]; py++)
+                    for (int px = 0; px < fw[i]; px++)
+                        atlas.setRGB(dx + px, dy + py, sheet[i].getRGB(f * fw[i] + px, py));
+            }
+        }
+
+        out.mkdirs();
+        File png = new File(out, "atlas.png");
+        ImageIO.write(atlas, "png", png);
+        try (DataOutputStream idx = new DataOutputStream(new FileOutputStream(new File(out, "atlas.bin")))) {
+            idx.writeShort(n);
+            for (int i = 0; i < n; i++) {
+                idx.writeUTF(name[i]);
+                idx.writeShort(x[i]); idx.writeShort(y[i]);
+                idx.writeShort(fw[i]); idx.writeShort(fh[i]);
+                idx.writeByte(frames[i]); idx.writeByte(cols[i]);
+            }
+        }
+        System.out.println("atlas " + atlasW + "x" + atlasH + ", " + n + " sheets: "
+                + srcBytes + " -> " + png.length() + " bytes png");
+    }
+}
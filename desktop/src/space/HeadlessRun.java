@@ -0,0 +1,48 @@
+package space;
+
+/**
+ * Прогон SpaceGame без экрана на обычной JVM: простой бот жмёт клавиши,
+ * после Game Over начинается новая партия. Печатает тики/сек и средний счёт.
+ *
+ *   ant headless -Dheadless.ticks=200000
+ *   ant headless -Dheadless.args="240 320 16 66"    (w h maxAst tickMs — 15 Гц)
+ */
+public class HeadlessRun {
+
+    public static void main(String[] args) {
+        int ticks = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int w = (args.length > 1) ? Integer.parseInt(args[1]) : 240;
+        int h = (args.length > 2) ? Integer.parseInt(args[2]) : 320;
+        int maxAst = (args.length > 3) ? Integer.parseInt(args[3]) : 16;
+        int tickMs = (args.length > 4) ? Integer.parseInt(args[4]) : SpaceGame.BASE_MS;
+
+        SpaceGame game = new SpaceGame(w, h, maxAst, 10, 4);
+        game.setTickMs(tickMs);
+        game.reset();
+        int botSeed = 42, keys = 0;
+        int games = 0;
+        long scoreSum = 0;
+
+        long t0 = System.currentTimeMillis();
+        for (int t = 0; t < ticks; t++) {
+            // раз в 8 тиков бот выбирает направление, FIRE зажимает через тик
+            if ((t & 7) == 0) {
+                botSeed = (botSeed * 1103515245 + 12345) & 0x7fffffff;
+                int dir = botSeed % 3;
+                keys = (dir == 0) ? SpaceGame.K_LEFT : (dir == 1 ? SpaceGame.K_RIGHT : 0);
+            }
+            int ks = keys | (((t & 1) == 0) ? SpaceGame.K_FIRE : 0);
+            game.tick(ks);
+            if (game.gameOver) {
+                games++;
+                scoreSum += game.score;
+                game.reset();
+            }
+        }
+        long ms = Math.max(1, System.currentTimeMillis() - t0);
+
+        System.out.println("ticks:   " + ticks + " in " + ms + " ms");
+        System.out.println("tick/s:  " + (ticks * 1000L / ms));
+        System.out.println("games:   " + games + (games > 0 ? ", avg score " + (scoreSum / games) : ""));
+    }
+}
@@ -0,0 +1,218 @@
+package space;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+import javax.microedition.lcdui.game.Sprite;
+
+/**
+ * Кадры игровых листов. Обычно это один atlas.png + индекс atlas.bin,
+ * собранные при сборке (цель atlas в build.xml): одно декодирование вместо
+ * восьми. Если атласа в JAR нет (запуск мимо ant), грузим листы по одному —
+ * индекс тогда строится по размерам картинок.
+ *
+ * Кадр f листа e лежит в img[e] по (x + f%cols*fw, y + f/cols*fh).
+ *
+ * После slice() каждый кадр — отдельная неизменяемая картинка, и paint()
+ * рисует её простым drawImage: на части KVM это заметно быстрее, чем
+ * drawRegion из большого листа, ценой лишней кучи на заголовки картинок
+ * (сами листы после нарезки отпускаются).
+ *
+ * Листы нарисованы под клетку SpaceGame.BASE_CELL; scale(cell) один раз
+ * перемасштабирует их ближайшим соседом (getRGB → createRGBImage), каждый
+ * лист — в свою картинку-строку кадров. Результат можно сохранить в RMS
+ * (toBytes/fromBytes: ARGB в RLE) и на следующем запуске не масштабировать.
+ */
+final class Atlas {
+
+    static final int SHIP = 0, AST_S = 1, AST_M = 2, AST_L = 3,
+                     EXP_S = 4, EXP_M = 5, EXP_L = 6, STAR = 7, COUNT = 8;
+    // имена листов в res/img (без .png) и ширина кадра — для загрузки по одному
+    static final String[] NAME = {"ship48_sheet", "asteroid_small16_sheet", "asteroid_med24_tight_sheet",
+            "asteroid_big32_tight_sheet", "exp16_sheet", "exp24_sheet", "exp32_sheet", "stars_sprite_16x16"};
+    private static final int[] FRAME_W = {SpaceGame.SHIP_W, 16, 24, 32, 16, 24, 32, SpaceGame.STAR_W};
+
+    final Image[] img = new Image[COUNT];
+    final int[] x = new int[COUNT], y = new int[COUNT];
+    final int[] fw = new int[COUNT], fh = new int[COUNT];
+    final int[] frames = new int[COUNT], cols = new int[COUNT];
+    boolean packed = false;
+    int cell = SpaceGame.BASE_CELL;            // под какую клетку сейчас кадры
+    private Image[][] frame;                   // не null — режим нарезанных кадров
+
+    static Atlas load() throws IOException {
+        Atlas a = new Atlas();
+        InputStream in = Atlas.class.getResourceAsStream("/img/atlas.bin");
+        if (in != null) a.loadPacked(in);
+        else a.loadSheets();
+        return a;
+    }
+
+    private void loadPacked(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        try {
+            int n = in.readShort();
+            for (int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                int px = in.readShort(), py = in.readShort(), pw = in.readShort(), ph = in.readShort();
+                int pf = in.readUnsignedByte(), pc = in.readUnsignedByte();
+                int e = indexOf(name);
+                if (e < 0) continue;   // лишний лист в индексе
+                x[e] = px; y[e] = py; fw[e] = pw; fh[e] = ph; frames[e] = pf; cols[e] = pc;
+            }
+        } finally {
+            in.close();
+        }
+        Image atlas = Image.createImage("/img/atlas.png");
+        for (int e = 0; e < COUNT; e++) {
+            if (frames[e] == 0) throw new IOException("atlas: no " + NAME[e]);
+            img[e] = atlas;
+        }
+        packed = true;
+    }
+
+    private void loadSheets() throws IOException {
+        for (int e = 0; e < COUNT; e++) {
+            Image s = Image.createImage("/img/" + NAME[e] + ".png");
+            img[e] = s;
+            fw[e] = FRAME_W[e]; fh[e] = s.getHeight();
+            frames[e] = cols[e] = s.getWidth() / fw[e];
+        }
+    }
+
+    /**
+     * Нарезать все кадры в отдельные картинки (альфа сохраняется — источник неизменяемый).
+     * Листы после этого отпускаются: маски и кэш (toBytes) — только до slice().
+     */
+    void slice() {
+        Image[][] f = new Image[COUNT][];
+        for (int e = 0; e < COUNT; e++) {
+            f[e] = new Image[frames[e]];
+            int c = cols[e], w = fw[e], h = fh[e];
+            for (int i = 0; i < frames[e]; i++)
+                f[e][i] = Image.createImage(img[e], x[e] + (i % c) * w, y[e] + (i / c) * h, w, h, Sprite.TRANS_NONE);
+        }
+        frame = f;
+        for (int e = 0; e < COUNT; e++) img[e] = null;   // иначе атлас остаётся в куче рядом с кадрами
+    }
+
+    boolean sliced() { return frame != null; }
+
+    /** Перемасштабировать исходные листы под клетку cell; вызывать до slice(). */
+    void scale(int cell) {
+        if (cell == this.cell || this.cell != SpaceGame.BASE_CELL) return;
+        for (int e = 0; e < COUNT; e++) {
+            int w = fw[e], h = fh[e], n = frames[e], c = cols[e];
+            int sw = SpaceGame.scaled(w, cell), sh = SpaceGame.scaled(h, cell);
+            int[] src = new int[w * h];
+            int[] dst = new int[sw * n * sh];
+            int stride = sw * n;
+            for (int f = 0; f < n; f++) {
+                img[e].getRGB(src, 0, w, x[e] + (f % c) * w, y[e] + (f / c) * h, w, h);
+                for (int py = 0; py < sh; py++) {
+                    int row = (py * h / sh) * w, o = py * stride + f * sw;
+                    for (int px = 0; px < sw; px++) dst[o + px] = src[row + px * w / sw];
+                }
+            }
+            setStrip(e, Image.createRGBImage(dst, stride, sh, true), sw, sh, n);
+        }
+        packed = false;
+        this.cell = cell;
+    }
+
+    /** Маски непрозрачных пикселей всех кадров листа e (после scale()). */
+    PixelMask[] masks(int e) {
+        int c = cols[e], w = fw[e], h = fh[e];
+        int[] argb = new int[w * h];
+        PixelMask[] m = new PixelMask[frames[e]];
+        for (int f = 0; f < m.length; f++) {
+            img[e].getRGB(argb, 0, w, x[e] + (f % c) * w, y[e] + (f / c) * h, w, h);
+            m[f] = new PixelMask(argb, w, h);
+        }
+        return m;
+    }
+
+    // лист e — одна строка из n кадров sw×sh
+    private void setStrip(int e, Image strip, int sw, int sh, int n) {
+        img[e] = strip;
+        x[e] = y[e] = 0;
+        fw[e] = sw; fh[e] = sh;
+        frames[e] = cols[e] = n;
+    }
+
+    // ---------- кэш масштабированных листов ----------
+    // Запись на лист: MAGIC, cell, fw, fh (short), frames (byte), count (int),
+    // затем count пар (длина — unsigned short, ARGB — int). Прозрачный фон
+    // и заливки сжимаются в длинные серии.
+    private static final int MAGIC = 0x53415331;   // "SAS1"
+    private static final int MAX_RUN = 0xFFFF;
+
+    byte[] toBytes(int e) throws IOException {
+        int w = fw[e] * frames[e], h = fh[e];
+        int[] argb = new int[w * h];
+        img[e].getRGB(argb, 0, w, 0, 0, w, h);
+        int runs = 0;
+        for (int i = 0; i < argb.length; ) {
+            int j = i + 1;
+            while (j < argb.length && argb[j] == argb[i] && j - i < MAX_RUN) j++;
+            runs++;
+            i = j;
+        }
+        ByteArrayOutputStream bo = new ByteArrayOutputStream(17 + runs * 6);
+        DataOutputStream out = new DataOutputStream(bo);
+        out.writeInt(MAGIC);
+        out.writeInt(cell);
+        out.writeShort(fw[e]); out.writeShort(fh[e]);
+        out.writeByte(frames[e]);
+        out.writeInt(runs);
+        for (int i = 0; i < argb.length; ) {
+            int j = i + 1;
+            while (j < argb.length && argb[j] == argb[i] && j - i < MAX_RUN) j++;
+            out.writeShort(j - i);
+            out.writeInt(argb[i]);
+            i = j;
+        }
+        out.close();
+        return bo.toByteArray();
+    }
+
+    /** Лист e из записи кэша; IOException — запись не для этой клетки или битая. */
+    void fromBytes(int e, byte[] b, int cell) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+        if (in.readInt() != MAGIC || in.readInt() != cell) throw new IOException("stale sprite cache");
+        int sw = in.readShort(), sh = in.readShort(), n = in.readUnsignedByte();
+        int runs = in.readInt();
+        int[] argb = new int[sw * n * sh];
+        int p = 0;
+        for (int r = 0; r < runs; r++) {
+            int len = in.readUnsignedShort(), c = in.readInt();
+            if (p + len > argb.length) throw new IOException("bad sprite cache");
+            while (len-- > 0) argb[p++] = c;
+        }
+        in.close();
+        if (p != argb.length) throw new IOException("bad sprite cache");
+        setStrip(e, Image.createRGBImage(argb, sw * n, sh, true), sw, sh, n);
+        this.cell = cell;
+    }
+
+    private static int indexOf(String name) {
+        for (int e = 0; e < COUNT; e++) if (NAME[e].equals(name)) return e;
+        return -1;
+    }
+
+    /** Кадр frame листа e с центром в (cx, cy). */
+    void paint(Graphics g, int e, int frame, int cx, int cy) {
+        int c = cols[e], w = fw[e], h = fh[e];
+        if (this.frame != null) {
+            g.drawImage(this.frame[e][frame], cx - w/2, cy - h/2, Graphics.TOP | Graphics.LEFT);
+            return;
+        }
+        g.drawRegion(img[e], x[e] + (frame % c) * w, y[e] + (frame / c) * h, w, h,
+                Sprite.TRANS_NONE, cx - w/2, cy - h/2, Graphics.TOP | Graphics.LEFT);
+    }
+}
@@ -0,0 +1,88 @@
+package space;
+
+/**
+ * Набор «грязных» прямоугольников экрана за кадр.
+ * Пересекающиеся (и соприкасающиеся) прямоугольники сливаются, поэтому в списке
+ * они всегда не пересекаются. Когда места нет, новый прямоугольник сливается
+ * с тем, чья площадь вырастет меньше всего, — так их не больше capacity
+ * (и не больше capacity вызовов flushGraphics). Перерисовка идёт одним проходом
+ * с clip по объемлющему прямоугольнику (bx0..by1), поэтому порог isFull()
+ * считается по его площади: если она больше — кадр выгоднее перерисовать и
+ * сбросить целиком.
+ */
+final class DirtyRegion {
+
+    final int[] x0, y0, x1, y1;   // x1/y1 — не включительно
+    int count = 0;
+    int bx0, by0, bx1, by1;       // объемлющий всех; пустой — bx0 >= bx1
+
+    private final int w, h;
+    private final int maxArea;
+    private boolean full = false;
+
+    DirtyRegion(int w, int h, int capacity, int fullPercent) {
+        this.w = w; this.h = h;
+        maxArea = (w * h / 100) * fullPercent;
+        reset();
+        x0 = new int[capacity]; y0 = new int[capacity];
+        x1 = new int[capacity]; y1 = new int[capacity];
+    }
+
+    void reset() { count = 0; full = false; bx0 = w; by0 = h; bx1 = by1 = 0; }
+
+    void markFull() { full = true; }
+
+    boolean isFull() {
+        return full || (bx1 > bx0 && (bx1 - bx0) * (by1 - by0) > maxArea);
+    }
+
+    void add(int x, int y, int rw, int rh) {
+        if (full) return;
+        int ax0 = (x < 0) ? 0 : x, ay0 = (y < 0) ? 0 : y;
+        int ax1 = x + rw, ay1 = y + rh;
+        if (ax1 > w) ax1 = w;
+        if (ay1 > h) ay1 = h;
+        if (ax0 >= ax1 || ay0 >= ay1) return;
+        if (ax0 < bx0) bx0 = ax0;
+        if (ay0 < by0) by0 = ay0;
+        if (ax1 > bx1) bx1 = ax1;
+        if (ay1 > by1) by1 = ay1;
+
+        // сливаем со всеми, кого задеваем; объединение может задеть новых — повторяем
+        int i = 0;
+        while (i < count) {
+            if (ax0 <= x1[i] && x0[i] <= ax1 && ay0 <= y1[i] && y0[i] <= ay1) {
+                if (x0[i] < ax0) ax0 = x0[i];
+                if (y0[i] < ay0) ay0 = y0[i];
+                if (x1[i] > ax1) ax1 = x1[i];
+                if (y1[i] > ay1) ay1 = y1[i];
+                removeAt(i);
+                i = 0;
+            } else i++;
+        }
+
+        if (count == x0.length) {
+            // места нет — растим самый «дешёвый» прямоугольник и пробуем снова
+            int best = 0, bestGrow = Integer.MAX_VALUE;
+            for (int j = 0; j < count; j++) {
+                int ux0 = Math.min(ax0, x0[j]), uy0 = Math.min(ay0, y0[j]);
+                int ux1 = Math.max(ax1, x1[j]), uy1 = Math.max(ay1, y1[j]);
+                int grow = (ux1 - ux0) * (uy1 - uy0) - (x1[j] - x0[j]) * (y1[j] - y0[j]);
+                if (grow < bestGrow) { bestGrow = grow; best = j; }
+            }
+            int ux0 = Math.min(ax0, x0[best]), uy0 = Math.min(ay0, y0[best]);
+            int ux1 = Math.max(ax1, x1[best]), uy1 = Math.max(ay1, y1[best]);
+            removeAt(best);
+            add(ux0, uy0, ux1 - ux0, uy1 - uy0);
+            return;
+        }
+
+        x0[count] = ax0; y0[count] = ay0; x1[count] = ax1; y1[count] = ay1;
+        count++;
+    }
+
+    private void removeAt(int i) {
+        int last = --count;
+        x0[i] = x0[last]; y0[i] = y0[last]; x1[i] = x1[last]; y1[i] = y1[last];
+    }
+}
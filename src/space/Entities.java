@@ -0,0 +1,114 @@
+package space;
+
+/**
+ * Хранилище сущностей структурой массивов: все типы (астероиды, взрывы,
+ * звёзды-хилки, пули) живут в общих колонках по номеру слота, различаются
+ * тегом type[]. Позиция и скорость — 16.16, x/y — пиксели (fx/fy >> FX).
+ *
+ * Живые слоты лежат в общем плотном списке all (для единого прохода
+ * движения и анимации) и в плотном списке своего типа list[t]/count[t]
+ * (для коллизий и отрисовки по типу). У каждого типа своя ёмкость cap[t]:
+ * когда она выбрана, alloc(t) возвращает -1, как раньше у отдельных пулов.
+ *
+ * Удалять во время обхода можно, если обходить список с конца
+ * (см. SlotAllocator) — это верно и для all, и для list[t].
+ */
+final class Entities {
+
+    static final int T_AST = 0, T_EXP = 1, T_PWR = 2, T_BUL = 3, TYPES = 4;
+
+    // флаги анимации
+    static final int F_LOOP = 1;      // кадры по кругу; без флага — доиграл и исчез
+
+    final SlotAllocator all;
+    final int[][] list = new int[TYPES][];
+    final int[] count = new int[TYPES];
+    final int[] cap = new int[TYPES];
+
+    // колонки по слоту
+    final int[] type;
+    final int[] x, y;                 // пиксели
+    final int[] ox, oy;               // пиксели до последнего шага — для swept-коллизий
+    final int[] fx, fy, vx, vy;       // 16.16
+    final int[] r;                    // радиус коллизии
+    final int[] kind;                 // размер S/M/L у астероидов и взрывов
+    final int[] frame, frames, animTick, animDelay, flags;   // animDelay 0 — без анимации
+
+    private final int[] posInType;
+
+    Entities(int maxAst, int maxExp, int maxPwr, int maxBul) {
+        cap[T_AST] = maxAst; cap[T_EXP] = maxExp; cap[T_PWR] = maxPwr; cap[T_BUL] = maxBul;
+        int n = maxAst + maxExp + maxPwr + maxBul;
+        all = new SlotAllocator(n);
+        for (int t = 0; t < TYPES; t++) list[t] = new int[cap[t]];
+        type = new int[n];
+        x = new int[n]; y = new int[n];
+        ox = new int[n]; oy = new int[n];
+        fx = new int[n]; fy = new int[n]; vx = new int[n]; vy = new int[n];
+        r = new int[n]; kind = new int[n];
+        frame = new int[n]; frames = new int[n]; animTick = new int[n]; animDelay = new int[n]; flags = new int[n];
+        posInType = new int[n];
+    }
+
+    int capacity() { return all.capacity(); }
+
+    /** Слот под сущность типа t (колонки не обнулены) или -1. */
+    int alloc(int t) {
+        if (count[t] == cap[t]) return -1;
+        int s = all.alloc();
+        type[s] = t;
+        posInType[s] = count[t];
+        list[t][count[t]++] = s;
+        return s;
+    }
+
+    void release(int s) {
+        if (!all.isLive(s)) return;
+        all.release(s);
+        int t = type[s], i = posInType[s];
+        int last = list[t][--count[t]];
+        list[t][i] = last;
+        posInType[last] = i;
+    }
+
+    /** Поставить позицию в пикселях (16.16 тоже). */
+    void place(int s, int px, int py) {
+        x[s] = ox[s] = px; y[s] = oy[s] = py;
+        fx[s] = px << SpaceGame.FX; fy[s] = py << SpaceGame.FX;
+    }
+
+    /** Поставить позицию в 16.16 (пиксели выводятся). */
+    void placeFx(int s, int pfx, int pfy) {
+        fx[s] = pfx; fy[s] = pfy;
+        x[s] = ox[s] = pfx >> SpaceGame.FX; y[s] = oy[s] = pfy >> SpaceGame.FX;
+    }
+
+    void anim(int s, int first, int n, int delay, int f) {
+        frame[s] = first; frames[s] = n; animDelay[s] = delay; animTick[s] = 0; flags[s] = f;
+    }
+
+    /**
+     * Копия для снимка кадра: списки по типам и то, что рисуется (x, y, r, kind,
+     * frame). all в копии не ведётся — обходить её только по list[t].
+     */
+    void copyView(Entities s) {
+        for (int t = 0; t < TYPES; t++) {
+            int[] l = s.list[t], d = list[t];
+            int c = count[t] = s.count[t];
+            for (int k = 0; k < c; k++) {
+                int i = d[k] = l[k];
+                x[i] = s.x[i]; y[i] = s.y[i]; r[i] = s.r[i];
+                kind[i] = s.kind[i]; frame[i] = s.frame[i];
+            }
+        }
+    }
+
+    void releaseAll(int t) {
+        while (count[t] > 0) release(list[t][count[t] - 1]);
+    }
+
+    void clear() {
+        all.clear();
+        for (int t = 0; t < TYPES; t++) count[t] = 0;
+    }
+}
@@ -0,0 +1,47 @@
+package space;
+
+/**
+ * Гистограмма времени кадра в мс с фиксированными корзинами.
+ * Корзина i считает кадры с временем <= LIMIT[i], последняя — всё, что дольше.
+ * add() ничего не аллоцирует, строки собираются только в lines().
+ */
+final class FrameHistogram {
+
+    static final int[] LIMIT = {4, 8, 16, 25, 40, 60, 100};
+
+    final int[] bucket = new int[LIMIT.length + 1];
+    int frames = 0;
+    long totalMs = 0;
+    int maxMs = 0;
+
+    void reset() {
+        for (int i = 0; i < bucket.length; i++) bucket[i] = 0;
+        frames = 0; totalMs = 0; maxMs = 0;
+    }
+
+    void add(int ms) {
+        int i = 0;
+        while (i < LIMIT.length && ms > LIMIT[i]) i++;
+        bucket[i]++;
+        frames++;
+        totalMs += ms;
+        if (ms > maxMs) maxMs = ms;
+    }
+
+    /** Среднее в десятых долях мс. */
+    int avgTenths() { return (frames == 0) ? 0 : (int) (totalMs * 10 / frames); }
+
+    /** Текстовый отчёт: по строке на непустую корзину. */
+    String[] lines() {
+        int n = 0;
+        for (int i = 0; i < bucket.length; i++) if (bucket[i] > 0) n++;
+        String[] s = new String[n];
+        n = 0;
+        for (int i = 0; i < bucket.length; i++) {
+            if (bucket[i] == 0) continue;
+            String range = (i < LIMIT.length) ? "<=" + LIMIT[i] : ">" + LIMIT[LIMIT.length - 1];
+            s[n++] = range + " ms: " + bucket[i] + " (" + (bucket[i] * 100 / frames) + "%)";
+        }
+        return s;
+    }
+}
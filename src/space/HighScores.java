@@ -0,0 +1,71 @@
+package space;
+
+import java.io.IOException;
+
+/**
+ * Таблица рекордов: N лучших партий по убыванию счёта. В RMS это одна запись
+ * фиксированного размера SIZE байт (big-endian): MAGIC, затем N пар
+ * (счёт, длительность партии в секундах) по int. Пустое место — счёт 0.
+ * Равный счёт встаёт после старого: кто раньше набрал, тот выше.
+ */
+final class HighScores {
+
+    static final int N = 5;
+    static final int SIZE = 4 + N * 8;
+    private static final int MAGIC = 0x53414831;   // "SAH1"
+
+    final int[] score = new int[N];
+    final int[] secs = new int[N];
+
+    /** Вставить партию; место 0..N-1 или -1, если в таблицу не попала. */
+    int add(int s, int sec) {
+        if (s <= 0) return -1;
+        int i = N;
+        while (i > 0 && s > score[i - 1]) i--;
+        if (i == N) return -1;
+        for (int k = N - 1; k > i; k--) { score[k] = score[k - 1]; secs[k] = secs[k - 1]; }
+        score[i] = s; secs[i] = sec;
+        return i;
+    }
+
+    int best() { return score[0]; }
+
+    /** Строки таблицы "1. 1234  2:05", только занятые места. */
+    String[] lines() {
+        int n = 0;
+        while (n < N && score[n] > 0) n++;
+        String[] r = new String[n];
+        for (int i = 0; i < n; i++) {
+            int s = secs[i] % 60;
+            r[i] = (i + 1) + ". " + score[i] + "  " + secs[i] / 60 + (s < 10 ? ":0" : ":") + s;
+        }
+        return r;
+    }
+
+    // ---------- (де)сериализация ----------
+    byte[] toBytes() {
+        byte[] b = new byte[SIZE];
+        putInt(b, 0, MAGIC);
+        for (int i = 0; i < N; i++) {
+            putInt(b, 4 + i * 8, score[i]);
+            putInt(b, 8 + i * 8, secs[i]);
+        }
+        return b;
+    }
+
+    void fromBytes(byte[] b) throws IOException {
+        if (b.length != SIZE || getInt(b, 0) != MAGIC) throw new IOException("bad scores");
+        for (int i = 0; i < N; i++) {
+            score[i] = getInt(b, 4 + i * 8);
+            secs[i] = getInt(b, 8 + i * 8);
+        }
+    }
+
+    private static void putInt(byte[] b, int o, int v) {
+        b[o] = (byte) (v >>> 24); b[o + 1] = (byte) (v >>> 16); b[o + 2] = (byte) (v >>> 8); b[o + 3] = (byte) v;
+    }
+
+    private static int getInt(byte[] b, int o) {
+        return (b[o] << 24) | ((b[o + 1] & 0xFF) << 16) | ((b[o + 2] & 0xFF) << 8) | (b[o + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,107 @@
+package space;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Запись клавиш партии для детерминированного повтора.
+ * Храним seed LCG, размер поля, шаг симуляции и маски getKeyStates() по тикам в RLE:
+ * пары (маска, сколько тиков подряд). Ёмкость фиксированная — когда пар
+ * не хватает, запись просто обрывается, лог остаётся корректным префиксом.
+ *
+ * Формат: MAGIC, seed, w, h, tickMs, ticks, score (int), full (boolean), count (int), затем count пар
+ * (маска — short, длина — unsigned short).
+ */
+final class InputLog {
+
+    private static final int MAGIC = 0x53415232;   // "SAR2"; в SAR1 не было tickMs
+    private static final int MAX_RUN = 0xFFFF;
+
+    int seed, w, h;
+    int tickMs;                        // повтор идёт с тем же шагом, иначе разъедется
+    int ticks = 0;                     // всего тиков в логе
+    int score = 0;                     // счёт на последнем записанном тике — для проверки повтора
+    boolean full = false;              // пары кончились, запись оборвана
+
+    private final int[] keys, runs;
+    private int count = 0;
+
+    // курсор повтора
+    private int pRun, pLeft;
+
+    InputLog(int capacity) {
+        keys = new int[capacity];
+        runs = new int[capacity];
+    }
+
+    // ---------- запись ----------
+    void begin(int seed, int w, int h, int tickMs) {
+        this.seed = seed; this.w = w; this.h = h; this.tickMs = tickMs;
+        ticks = 0; score = 0; count = 0; full = false;
+    }
+
+    /** Добавить тик; false — лог полон и тик не записан. */
+    boolean record(int ks) {
+        if (full) return false;
+        int last = count - 1;
+        if (last >= 0 && keys[last] == ks && runs[last] < MAX_RUN) {
+            runs[last]++;
+        } else {
+            if (count == keys.length) { full = true; return false; }
+            keys[count] = ks; runs[count] = 1;
+            count++;
+        }
+        ticks++;
+        return true;
+    }
+
+    // ---------- повтор ----------
+    void rewind() { pRun = 0; pLeft = (count > 0) ? runs[0] : 0; }
+
+    /** Маска клавиш следующего тика или -1, если лог кончился. */
+    int next() {
+        while (pLeft == 0) {
+            if (++pRun >= count) { pRun = count; return -1; }
+            pLeft = runs[pRun];
+        }
+        pLeft--;
+        return keys[pRun];
+    }
+
+    // ---------- (де)сериализация ----------
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream(33 + count * 4);
+        DataOutputStream out = new DataOutputStream(bo);
+        out.writeInt(MAGIC);
+        out.writeInt(seed); out.writeInt(w); out.writeInt(h); out.writeInt(tickMs);
+        out.writeInt(ticks); out.writeInt(score);
+        out.writeBoolean(full);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeShort(keys[i]);
+            out.writeShort(runs[i]);
+        }
+        out.close();
+        return bo.toByteArray();
+    }
+
+    void fromBytes(byte[] b) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+        if (in.readInt() != MAGIC) throw new IOException("bad replay");
+        seed = in.readInt(); w = in.readInt(); h = in.readInt(); tickMs = in.readInt();
+        ticks = in.readInt(); score = in.readInt();
+        full = in.readBoolean();
+        int n = in.readInt();
+        if (n < 0 || n > keys.length) throw new IOException("replay too long");
+        for (int i = 0; i < n; i++) {
+            keys[i] = in.readShort() & 0xFFFF;
+            runs[i] = in.readUnsignedShort();
+        }
+        count = n;
+        in.close();
+        rewind();
+    }
+}
@@ -0,0 +1,109 @@
+package space;
+
+/**
+ * Частицы: обломки взрывов и выхлоп двигателя. Кольцевой буфер на cap
+ * частиц в int-массивах, позиция и скорость — 16.16. Новая частица пишется
+ * на место следующей по кругу (если та ещё жива — она самая старая и
+ * пропадает). limit — сколько одновременно живых разрешено (бюджет
+ * устройства, его же урезает регулятор качества): когда живых уже limit,
+ * burst() новых не рождает, старые не вытесняются.
+ *
+ * Свой LCG: частицы — чистая косметика и не трогают rnd() игры, повтор
+ * партии от них не зависит. Аллокаций после конструктора нет.
+ */
+final class Particles {
+
+    // тип частицы: палитра по возрасту (ярко → тускло) и размер в пикселях
+    static final int T_DEBRIS = 0, T_EXHAUST = 1, T_SPARK = 2, TYPES = 3, SHADES = 3;
+    static final int[] COLOR = {
+            0xFFC060, 0xC06020, 0x603020,    // обломки астероида
+            0xFFFFFF, 0x80C0FF, 0x305080,    // выхлоп
+            0xFFFF80, 0xFF6020, 0x802010};   // взрыв корабля
+    static final int[] SIZE = {2, 1, 2};
+
+    final int cap;
+    int limit;
+    int live = 0;
+
+    final int[] x, y, vx, vy;          // 16.16
+    final int[] life, type;            // life 0 — слот свободен
+    private final int[] life0;         // начальная жизнь — для оттенка
+    private int next = 0;
+
+    // границы живых частиц в пикселях после update() — для грязных прямоугольников
+    int minX, minY, maxX, maxY;
+
+    private int seed = 362436069;
+    private int rnd(int n) {
+        seed = (seed * 1103515245 + 12345) & 0x7fffffff;
+        return (n <= 0) ? 0 : seed % n;
+    }
+
+    Particles(int cap) {
+        this.cap = limit = cap;
+        x = new int[cap]; y = new int[cap]; vx = new int[cap]; vy = new int[cap];
+        life = new int[cap]; type = new int[cap]; life0 = new int[cap];
+    }
+
+    void clear() {
+        for (int i = 0; i < cap; i++) life[i] = 0;
+        live = 0;
+        next = 0;
+        minX = minY = maxX = maxY = 0;
+    }
+
+    /** Копия для снимка кадра (ёмкость та же). */
+    void copyFrom(Particles p) {
+        System.arraycopy(p.x, 0, x, 0, cap); System.arraycopy(p.y, 0, y, 0, cap);
+        System.arraycopy(p.life, 0, life, 0, cap); System.arraycopy(p.type, 0, type, 0, cap);
+        System.arraycopy(p.life0, 0, life0, 0, cap);
+        live = p.live; limit = p.limit;
+        minX = p.minX; minY = p.minY; maxX = p.maxX; maxY = p.maxY;
+    }
+
+    /**
+     * n частиц типа t из точки (px, py): скорость по каждой оси в ±spread (16.16),
+     * плюс (bvx, bvy); жизнь ticks..2×ticks-1 тиков.
+     */
+    void burst(int t, int n, int px, int py, int bvx, int bvy, int spread, int ticks) {
+        int fx = px << SpaceGame.FX, fy = py << SpaceGame.FX;
+        int s2 = spread * 2 + 1;
+        for (int k = 0; k < n; k++) {
+            if (live >= limit) return;
+            int i = next;
+            if (++next == cap) next = 0;
+            if (life[i] == 0) live++;
+            x[i] = fx; y[i] = fy;
+            vx[i] = bvx + rnd(s2) - spread;
+            vy[i] = bvy + rnd(s2) - spread;
+            life[i] = life0[i] = ticks + rnd(ticks);
+            type[i] = t;
+        }
+    }
+
+    /** Один тик: движение с лёгким торможением, старение, границы живых. */
+    void update() {
+        if (live == 0) return;
+        int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+        int[] l = life;
+        for (int i = 0; i < cap; i++) {
+            if (l[i] == 0) continue;
+            if (--l[i] == 0) { live--; continue; }
+            int v = vx[i]; vx[i] = v - (v >> 4);
+            v = vy[i]; vy[i] = v - (v >> 4);
+            int px = (x[i] += vx[i]) >> SpaceGame.FX;
+            int py = (y[i] += vy[i]) >> SpaceGame.FX;
+            if (px < x0) x0 = px;
+            if (px > x1) x1 = px;
+            if (py < y0) y0 = py;
+            if (py > y1) y1 = py;
+        }
+        if (live == 0) { minX = minY = maxX = maxY = 0; return; }
+        minX = x0; minY = y0; maxX = x1 + 2; maxY = y1 + 2;   // + самый крупный SIZE
+    }
+
+    /** Индекс цвета в COLOR: тип × SHADES + оттенок по прожитой доле. */
+    int shade(int i) {
+        return type[i] * SHADES + (life0[i] - life[i]) * SHADES / life0[i];
+    }
+}
@@ -0,0 +1,47 @@
+package space;
+
+/**
+ * 1-битная маска непрозрачных пикселей кадра: строка — words int'ов,
+ * старший бит — левый пиксель. Строится один раз при загрузке спрайтов;
+ * пересечение двух масок — AND по строкам, по 32 пикселя за раз.
+ */
+final class PixelMask {
+
+    final int w, h, words;
+    private final int[] bits;
+
+    /** argb — кадр w×h построчно; непрозрачный — альфа от половины. */
+    PixelMask(int[] argb, int w, int h) {
+        this.w = w; this.h = h;
+        words = (w + 31) >> 5;
+        bits = new int[words * h];
+        for (int y = 0; y < h; y++)
+            for (int x = 0; x < w; x++)
+                if ((argb[y * w + x] >>> 24) >= 0x80) bits[y * words + (x >> 5)] |= 0x80000000 >>> (x & 31);
+    }
+
+    /** Есть ли общий непрозрачный пиксель у a с левым верхним углом (ax, ay) и b в (bx, by). */
+    static boolean overlap(PixelMask a, int ax, int ay, PixelMask b, int bx, int by) {
+        int x0 = Math.max(ax, bx), x1 = Math.min(ax + a.w, bx + b.w);
+        int y0 = Math.max(ay, by), y1 = Math.min(ay + a.h, by + b.h);
+        if (x0 >= x1 || y0 >= y1) return false;
+        for (int y = y0; y < y1; y++) {
+            int ra = (y - ay) * a.words, rb = (y - by) * b.words;
+            for (int x = x0; x < x1; x += 32) {
+                int m = a.row32(ra, x - ax) & b.row32(rb, x - bx);
+                int left = x1 - x;
+                if (left < 32) m &= -1 << (32 - left);   // правее пересечения не смотрим
+                if (m != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    // 32 пикселя строки с колонки k; за краем маски — нули
+    private int row32(int row, int k) {
+        int i = k >> 5, s = k & 31;
+        int v = bits[row + i] << s;
+        if (s != 0 && i + 1 < words) v |= bits[row + i + 1] >>> (32 - s);
+        return v;
+    }
+}
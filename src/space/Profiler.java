@@ -0,0 +1,102 @@
+package space;
+
+/**
+ * Пофазный профайлер кадра. Есть только System.currentTimeMillis(), поэтому
+ * одна фаза за кадр обычно 0 или 1 мс — смысл имеют только суммы по многим
+ * кадрам. Время фаз лежит в кольцевых буферах на FRAMES кадров, среднее
+ * считается по всему кольцу в десятых долях мс.
+ *
+ * beginFrame(), затем lap(фаза) после каждой фазы (время с прошлой отметки
+ * прибавляется к фазе), затем endFrame(бюджет). Аллокаций нет.
+ */
+final class Profiler {
+
+    static final int P_INPUT = 0, P_STARS = 1, P_SPAWN = 2, P_ENT = 3,
+                     P_SHIP = 4, P_PART = 5, P_COLL = 6, P_DRAW = 7, P_FLUSH = 8, PHASES = 9;
+    static final String[] NAME = {"input", "stars", "spawn", "entities",
+                                  "ship", "particles", "collide", "draw", "flush"};
+    static final int FRAMES = 128;            // ~5 сек при 25 Гц
+
+    private final int[] ms = new int[PHASES * FRAMES];   // [фаза * FRAMES + кадр]
+    private final int[] total = new int[FRAMES];         // время кадра целиком
+    private final int[] alloc = new int[FRAMES];         // на сколько упала freeMemory()
+    private final boolean[] over = new boolean[FRAMES];  // кадр дольше бюджета
+    private final int[] units = new int[FRAMES];         // сколько штук обработала фаза (частиц) за кадр
+    private int cur = 0, filled = 0;
+    private long last, frameStart, freeStart;
+    int freeLow = Integer.MAX_VALUE;                     // минимум freeMemory() за сеанс
+
+    void reset() {
+        for (int i = 0; i < ms.length; i++) ms[i] = 0;
+        for (int i = 0; i < FRAMES; i++) { total[i] = 0; alloc[i] = 0; over[i] = false; units[i] = 0; }
+        cur = filled = 0;
+        freeLow = Integer.MAX_VALUE;
+        beginFrame();
+    }
+
+    void beginFrame() {
+        for (int p = 0; p < PHASES; p++) ms[p * FRAMES + cur] = 0;
+        units[cur] = 0;
+        freeStart = Runtime.getRuntime().freeMemory();
+        last = frameStart = System.currentTimeMillis();
+    }
+
+    void lap(int phase) {
+        long now = System.currentTimeMillis();
+        ms[phase * FRAMES + cur] += (int) (now - last);
+        last = now;
+    }
+
+    /** budgetMs — сколько кадр мог занять (tickDelay × тиков в кадре). */
+    void endFrame(int budgetMs) {
+        int t = (int) (System.currentTimeMillis() - frameStart);
+        long free = Runtime.getRuntime().freeMemory();
+        total[cur] = t;
+        over[cur] = t > budgetMs;
+        // если между замерами прошёл GC, free вырастет — такой кадр считаем за 0
+        alloc[cur] = (free < freeStart) ? (int) (freeStart - free) : 0;
+        if (free < freeLow) freeLow = (int) free;
+        if (++cur == FRAMES) cur = 0;
+        if (filled < FRAMES) filled++;
+    }
+
+    int frames() { return filled; }
+
+    /** Сколько штук (частиц) прошло через фазу в этом кадре — для цены за штуку. */
+    void units(int n) { units[cur] += n; }
+
+    /** Цена фазы на 100 штук, десятые мс: сумма времени / сумма штук по кольцу. */
+    int per100Tenths(int phase) {
+        int n = sum(units, 0);
+        return (n == 0) ? 0 : sum(ms, phase * FRAMES) * 1000 / n;
+    }
+
+    int avgTenths(int phase) { return sumTenths(ms, phase * FRAMES); }
+    int max(int phase) { return max(ms, phase * FRAMES); }
+    int frameAvgTenths() { return sumTenths(total, 0); }
+    int frameMax() { return max(total, 0); }
+    int allocAvg() { return (filled == 0) ? 0 : sum(alloc, 0) / filled; }
+
+    int overCount() {
+        int n = 0;
+        for (int i = 0; i < filled; i++) if (over[i]) n++;
+        return n;
+    }
+
+    // кольцо заполняется с 0, поэтому живые кадры — первые filled
+    private int sum(int[] a, int off) {
+        int s = 0;
+        for (int i = 0; i < filled; i++) s += a[off + i];
+        return s;
+    }
+
+    private int sumTenths(int[] a, int off) {
+        return (filled == 0) ? 0 : sum(a, off) * 10 / filled;
+    }
+
+    private int max(int[] a, int off) {
+        int m = 0;
+        for (int i = 0; i < filled; i++) if (a[off + i] > m) m = a[off + i];
+        return m;
+    }
+}
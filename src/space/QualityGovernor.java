@@ -0,0 +1,43 @@
+package space;
+
+/**
+ * Регулятор качества по бюджету кадра. Копит время работы (тики + отрисовка)
+ * и бюджет (tickDelay × тиков) за окно из WINDOW кадров и по итогам окна
+ * решает: загрузка выше DOWN_PCT — уровень вниз (хуже картинка),
+ * ниже UP_PCT UP_WINDOWS окон подряд — уровень вверх.
+ * Разрыв между порогами и несколько окон на подъём — гистерезис,
+ * чтобы уровень не скакал туда-сюда на границе.
+ *
+ * Уровень 0 — полное качество, MAX_LEVEL — самое дешёвое.
+ */
+final class QualityGovernor {
+
+    static final int MAX_LEVEL = 4;
+    private static final int WINDOW = 25;           // ~1 сек при 25 Гц
+    private static final int DOWN_PCT = 90, UP_PCT = 50, UP_WINDOWS = 3;
+
+    int level = 0;
+    private int frames = 0, workMs = 0, budgetMs = 0;
+    private int calm = 0;                           // окон подряд с запасом
+
+    /** Учесть кадр; true — уровень поменялся. */
+    boolean frame(int work, int budget) {
+        workMs += work; budgetMs += budget;
+        if (++frames < WINDOW) return false;
+
+        int load = (budgetMs == 0) ? 0 : workMs * 100 / budgetMs;
+        frames = workMs = budgetMs = 0;
+
+        if (load > DOWN_PCT) {
+            calm = 0;
+            if (level < MAX_LEVEL) { level++; return true; }
+        } else if (load < UP_PCT) {
+            if (++calm >= UP_WINDOWS && level > 0) { calm = 0; level--; return true; }
+        } else {
+            calm = 0;
+        }
+        return false;
+    }
+
+    void reset() { level = 0; frames = workMs = budgetMs = calm = 0; }
+}
@@ -0,0 +1,103 @@
+package space;
+
+import javax.microedition.rms.RecordStore;
+
+/**
+ * Фоновая запись в RMS. На части телефонов setRecord() блокирует на сотни мс,
+ * поэтому игровой поток только кладёт готовые байты в очередь и идёт дальше,
+ * а пишет отдельный поток с минимальным приоритетом.
+ *
+ * Очередь схлопывающая: на запись держим только последние байты — если
+ * прошлые ещё не записаны, новые их заменяют. Обычно хранилище — одна
+ * запись с id 1; put с id и keep ведёт кольцо последних keep записей
+ * (телеметрия по партиям).
+ */
+final class RmsWriter implements Runnable {
+
+    private static final int SLOTS = 4;            // разных хранилищ в очереди одновременно
+    private final String[] store = new String[SLOTS];
+    private final int[] id = new int[SLOTS], keep = new int[SLOTS];
+    private final byte[][] data = new byte[SLOTS][];
+    private boolean running = true;
+    private Thread thread;
+
+    synchronized void start() {
+        running = true;
+        thread = new Thread(this);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /** В очередь запись 1 хранилища name; false — все слоты заняты другими. */
+    boolean put(String name, byte[] b) { return put(name, 1, 0, b); }
+
+    /**
+     * В очередь запись rid хранилища name. Записи с id меньше rid, которых ещё
+     * нет, создаются пустыми; keep > 0 — при создании rid удалить записи старше
+     * на keep и больше. false — все слоты заняты другими записями.
+     */
+    synchronized boolean put(String name, int rid, int keep, byte[] b) {
+        int free = -1;
+        for (int i = 0; i < SLOTS; i++) {
+            if (name.equals(store[i]) && id[i] == rid) { data[i] = b; return true; }   // ещё не записано — заменяем
+            if (store[i] == null && free < 0) free = i;
+        }
+        if (free < 0) return false;
+        store[free] = name; id[free] = rid; this.keep[free] = keep; data[free] = b;
+        notify();
+        return true;
+    }
+
+    /** Дописать очередь и остановить поток. */
+    void stop() {
+        Thread t;
+        synchronized (this) { running = false; notify(); t = thread; thread = null; }
+        if (t != null && t != Thread.currentThread()) {
+            try { t.join(); } catch (InterruptedException ignored) {}
+        }
+    }
+
+    public void run() {
+        while (true) {
+            String name;
+            int rid, k;
+            byte[] b;
+            synchronized (this) {
+                int i = pending();
+                while (i < 0 && running) {
+                    try { wait(); } catch (InterruptedException ignored) {}
+                    i = pending();
+                }
+                if (i < 0) return;   // остановлены и всё записано
+                name = store[i]; rid = id[i]; k = keep[i]; b = data[i];
+                store[i] = null; data[i] = null;
+            }
+            write(name, rid, k, b);
+        }
+    }
+
+    private int pending() {
+        for (int i = 0; i < SLOTS; i++) if (store[i] != null) return i;
+        return -1;
+    }
+
+    private static void write(String name, int rid, int keep, byte[] b) {
+        RecordStore rs = null;
+        try {
+            rs = RecordStore.openRecordStore(name, true);
+            if (rs.getNextRecordID() <= rid) {
+                while (rs.getNextRecordID() < rid) rs.addRecord(null, 0, 0);
+                rs.addRecord(b, 0, b.length);
+                // кольцо: старые сверх keep (и пустые пропуски между ними)
+                for (int d = rid - keep; keep > 0 && d > 0 && d > rid - 2 * keep; d--)
+                    try { rs.deleteRecord(d); } catch (Exception ignored) {}
+            } else {
+                rs.setRecord(rid, b, 0, b.length);
+            }
+        } catch (Exception e) {
+            System.err.println("RMS " + name + " not saved");
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
+        }
+    }
+}
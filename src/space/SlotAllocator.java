@@ -0,0 +1,58 @@
+package space;
+
+/**
+ * Аллокатор слотов фиксированной ёмкости для параллельных массивов сущностей.
+ * Свободные слоты — стек (free-list), живые — плотный список dense[0..count)
+ * с удалением «обменом с последним». alloc/release — O(1), циклы идут
+ * только по живым.
+ *
+ * Удалять во время обхода можно, если обходить dense с конца:
+ * на место удалённого встаёт уже просмотренный (или только что добавленный) слот.
+ */
+final class SlotAllocator {
+
+    final int[] dense;          // живые слоты
+    int count = 0;
+
+    private final int[] pos;    // индекс слота в dense, -1 = свободен
+    private final int[] free;
+    private int freeTop;
+
+    SlotAllocator(int capacity) {
+        dense = new int[capacity];
+        pos = new int[capacity];
+        free = new int[capacity];
+        clear();
+    }
+
+    int capacity() { return dense.length; }
+
+    /** Номер свободного слота или -1, если всё занято. */
+    int alloc() {
+        if (freeTop == 0) return -1;
+        int s = free[--freeTop];
+        pos[s] = count;
+        dense[count++] = s;
+        return s;
+    }
+
+    void release(int s) {
+        int i = pos[s];
+        if (i < 0) return;
+        int last = dense[--count];
+        dense[i] = last;
+        pos[last] = i;
+        pos[s] = -1;
+        free[freeTop++] = s;
+    }
+
+    boolean isLive(int s) { return pos[s] >= 0; }
+
+    void clear() {
+        count = 0;
+        int n = dense.length;
+        // первыми выдаются младшие слоты
+        for (int i = 0; i < n; i++) { pos[i] = -1; free[i] = n - 1 - i; }
+        freeTop = n;
+    }
+}
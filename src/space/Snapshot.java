@@ -0,0 +1,51 @@
+package space;
+
+/**
+ * Что нужно для кадра партии: сущности, частицы, корабль, счёт и HP.
+ * Отрисовка читает только снимок, поэтому игру можно тикать в другом
+ * потоке (см. SnapshotBuffer).
+ *
+ * Снимок-копия (Sim-Thread) держит свои Entities/Particles и копирует в них
+ * живые сущности и частицы. Снимок-вид (один поток) смотрит прямо в массивы
+ * игры и копирует только несколько полей корабля и счёта.
+ */
+final class Snapshot {
+
+    int seq;                                  // номер тика партии, после которого снят
+
+    final Entities ent;                       // в копии ведутся только list/count и x, y, r, kind, frame
+    final Particles parts;
+    private final boolean copy;
+
+    int shipX, shipY, shipFrame, shipExpFrame;
+    boolean shipExploding, shipBlink;         // blink — кадр i-frames без корабля
+    int score, hp;
+    boolean gameOver;
+    int narrowTests, maskMisses;
+
+    /** copy — свои массивы (для другого потока), иначе вид на массивы g. */
+    Snapshot(SpaceGame g, boolean copy) {
+        this.copy = copy;
+        if (copy) {
+            Entities e = g.ent;
+            ent = new Entities(e.cap[Entities.T_AST], e.cap[Entities.T_EXP], e.cap[Entities.T_PWR], e.cap[Entities.T_BUL]);
+            parts = new Particles(g.parts.cap);
+        } else {
+            ent = g.ent;
+            parts = g.parts;
+        }
+    }
+
+    void capture(SpaceGame g) {
+        if (copy) {
+            ent.copyView(g.ent);
+            parts.copyFrom(g.parts);
+        }
+        shipX = g.shipX; shipY = g.shipY;
+        shipFrame = SpaceGame.SHIP_SEQ[g.shipSeq];
+        shipExploding = g.shipExploding; shipExpFrame = g.shipExpFrame;
+        shipBlink = (g.invTicks & 1) != 0;
+        score = g.score; hp = g.hp; gameOver = g.gameOver;
+        narrowTests = g.narrowTests; maskMisses = g.maskMisses;
+    }
+}
@@ -0,0 +1,55 @@
+package space;
+
+/**
+ * Двойной буфер снимков между потоком симуляции и потоком отрисовки.
+ * Симуляция пишет в тот снимок, который отрисовка сейчас не держит, и
+ * потом под замком делает его свежим; отрисовка под тем же замком берёт
+ * свежий. Под замком только выбор и смена индексов — копирование и кадр
+ * идут без него.
+ *
+ * Если свежий снимок ещё не взят, а отрисовка держит старый, свежий
+ * переписывается заново (до конца записи он не виден), так что кадр
+ * всегда получает последний целый тик.
+ */
+final class SnapshotBuffer {
+
+    private final Snapshot[] buf = new Snapshot[2];
+    private int front = -1;       // свежий снимок, -1 — нет (ещё не было или переписывается)
+    private int reading = -1;     // снимок, который держит отрисовка
+
+    SnapshotBuffer(SpaceGame g) {
+        buf[0] = new Snapshot(g, true);
+        buf[1] = new Snapshot(g, true);
+    }
+
+    synchronized void clear() { front = reading = -1; }
+
+    /** Поток симуляции: снять игру после тика seq и сделать снимок свежим. */
+    void publish(SpaceGame g, int seq) {
+        int t;
+        synchronized (this) {
+            t = (reading >= 0) ? 1 - reading : 1 - Math.max(front, 0);
+            if (t == front) front = -1;
+        }
+        Snapshot s = buf[t];
+        s.capture(g);
+        s.seq = seq;
+        synchronized (this) {
+            front = t;
+            notify();
+        }
+    }
+
+    /** Поток отрисовки: снимок новее тика after или null, если за ms не появился. */
+    synchronized Snapshot acquire(int after, long ms) {
+        if (front < 0 || buf[front].seq <= after) {
+            try { wait(ms); } catch (InterruptedException ignored) {}
+            if (front < 0 || buf[front].seq <= after) return null;
+        }
+        reading = front;
+        return buf[reading];
+    }
+
+    /** Кадр нарисован — снимок можно переписывать. */
+    synchronized void release() { reading = -1; }
+}
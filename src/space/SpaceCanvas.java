@@ -1,10 +1,12 @@
 package space;
 
-import javax.microedition.lcdui.Displayable;
+import java.io.IOException;
+import javax.microedition.lcdui.Font;
 import javax.microedition.lcdui.Graphics;
 import javax.microedition.lcdui.Image;
 import javax.microedition.lcdui.game.GameCanvas;
-import javax.microedition.lcdui.game.Sprite;
+import javax.microedition.lcdui.game.TiledLayer;
+import javax.microedition.rms.RecordStore;
 
 /**
  * Space Asteroids — J2ME GameCanvas
@@ -13,11 +15,24 @@ import javax.microedition.lcdui.game.Sprite;
  * - Корабль 31×48 с анимацией (0-1-2-1)
  * - HP-полоса, i-frames; при 0 HP — взрыв корабля, затем Game Over
  * - Падающие «звёзды» (16×16, 11 кадров): подбор лечит игрока
+ *
+ * Сама игра — в SpaceGame (без lcdui); здесь экраны меню, ввод и отрисовка.
+ * Каждая партия пишется в InputLog (RMS "replay"); пункт REPLAY проигрывает её
+ * без ограничения частоты и показывает общее время и гистограмму кадров.
+ * В игре аккорд UP+DOWN включает оверлей профайлера (время фаз кадра и память).
+ * Телеметрия партии копится в памяти и пишется в RMS "telemetry" только на Game Over
+ * и pauseApp(); пункт STATS показывает сохранённые партии.
+ * Рекорды (HighScores, RMS "scores") пишет фоновый RmsWriter — не игровой поток.
+ * QualityGovernor снижает качество картинки, если кадры не влезают в бюджет тика.
+ * В меню цикл не тикает по таймеру: ждёт нажатия или смены мигания подсказки,
+ * а на паузе и под системным окном спит в wait() до start()/showNotify().
+ * Кадр партии рисуется по Snapshot; с Sim-Thread тики идут в своём потоке,
+ * а run() рисует последний снимок из SnapshotBuffer.
  */
 public class SpaceCanvas extends GameCanvas implements Runnable {
 
     // ===== Состояния =====
-    private static final int S_SPLASH = 0, S_TITLE = 1, S_PLAY = 2, S_ABOUT = 3, S_GAMEOVER = 4;
+    private static final int S_SPLASH = 0, S_TITLE = 1, S_PLAY = 2, S_ABOUT = 3, S_GAMEOVER = 4, S_REPORT = 5, S_STATS = 6;
     private int state = S_SPLASH;
     private int keysPrev = 0;          // для edge-триггеров
 
@@ -26,161 +41,374 @@ public class SpaceCanvas extends GameCanvas implements Runnable {
     private int splashTicks = 0;
     private static final int SPLASH_DURATION = 75; // ≈3 сек при 40 мс/тик
 
+    // Загрузка по кусочкам на сплэше: в конструкторе декодируем только splash.png,
+    // остальное — по шагу loadStep() за раз, пока не выйдет LOAD_SLICE мс тика.
+    // На TITLE можно уйти только после последнего шага.
+    private static final int LOAD_STEPS = 5, LOAD_SLICE = 20;
+    private int loaded = 0;                        // сделано шагов
+
     // TITLE
-    private int menuSel = 0;           // 0=Start, 1=About
-    private int titleBlink = 0;
+    private int menuSel = 0;           // 0=Start, 1=Replay, 2=Stats, 3=About
+    private static final int BLINK_MS = 800;     // период мигания подсказки
+    private boolean blinkOn = true;
+    private boolean menuDirty = true;            // в меню что-то поменялось — нужен кадр
     private Image titleLogo;           // опционально (не обязательно)
 
     // ---------- цикл ----------
     private Thread loop;
-    private boolean running = false, paused = false, gameOver = false;
+    private boolean running = false, paused = false, hidden = false;
+    private final Object wake = new Object();   // будим цикл: клавиша, start(), showNotify(), stop()
+    private boolean woken = false;              // будили, пока цикл не ждал — не засыпать
 
     // ---------- экран ----------
     private final int W, H;
-    private final int cols = 24;
-    private final int cell;
-    private final int groundY;
-
-    // ---------- фоновые звёзды ----------
-    private static final int STARS = 80;
-    private final int[] sx = new int[STARS];
-    private final int[] sy = new int[STARS];
-    private final int[] sl = new int[STARS]; // 1..3
-
-    // ---------- астероиды ----------
-    private static final int MAX_AST = 16;
-    private final boolean[] aLive = new boolean[MAX_AST];
-    private final int[] ax = new int[MAX_AST];
-    private final int[] ay = new int[MAX_AST];
-    private final int[] ar = new int[MAX_AST];    // радиус для коллизий
-    private final int[] avx = new int[MAX_AST];   // горизонтальная скорость
-    private final int[] avy = new int[MAX_AST];   // вертикальная скорость
-    private final int[] aKind = new int[MAX_AST]; // 0=S(16),1=M(24),2=L(32)
-    private final Sprite[] aSprite = new Sprite[MAX_AST];
-    private final int[] aAnimTick = new int[MAX_AST];
-    private final int[] aAnimDelay = new int[MAX_AST];
-
-    // ---------- взрывы астероидов ----------
-    private Image expS, expM, expL;          // 10 кадров: 16/24/32
-    private final Sprite[] eSprite = new Sprite[MAX_AST];
-    private final int[] eTick = new int[MAX_AST];
-    private final int[] eDelay = new int[MAX_AST];
-    private final int eFrames = 10;
-
-    // ---------- powerups: звёзды-хилки ----------
-    private static final int MAX_PWR = 4;
-    private final boolean[] pLive = new boolean[MAX_PWR];
-    private final int[] px = new int[MAX_PWR], py = new int[MAX_PWR], pvy = new int[MAX_PWR], pR = new int[MAX_PWR];
-    private final Sprite[] pSprite = new Sprite[MAX_PWR];
-    private final int[] pTick = new int[MAX_PWR], pDelay = new int[MAX_PWR];
-    private Image starSheet;
-    private static final int STAR_W = 16, STAR_H = 16, STAR_FRAMES = 11;
-
-    // ---------- пули ----------
-    private static final int MAX_BUL = 10;
-    private final boolean[] bLive = new boolean[MAX_BUL];
-    private final int[] bx = new int[MAX_BUL];
-    private final int[] by = new int[MAX_BUL];
-    private final int[] bvy = new int[MAX_BUL];
-    private int shootCooldown = 0;
-
-    // ---------- корабль ----------
-    private int shipX, shipY;
-    private final int shipW = 31, shipH = 48;
-    private int shipSpeed;
-    private Sprite ship;
-    private int shipAnimTick = 0;
-    private final int shipAnimDelay = 5;
-
-    // взрыв корабля
-    private boolean shipExploding = false;
-    private Sprite shipExp = null;       // используем exp32_sheet
-    private int shipExpTick = 0;
-    private int shipExpDelay = 2;        // кадр раз в 2 тика
-    private final int shipExpFrames = 10;
-
-    // ---------- HP / урон ----------
-    private final int hpMax = 8;
-    private int hp    = hpMax;
-    private int invTicks = 0;       // i-frames
-    private final int invDuration = 25;   // ~1 сек при 40мс/тик
 
     // ---------- игра ----------
-    private int score = 0;
-    private final int tickDelay = 40;  // ~25 FPS
-    private int spawnCounter = 0;
-
-    // ---------- ресурсы ----------
-    private Image astS, astM, astL;
-
-    // ---------- LCG ----------
-    private int seed = 123456789;
+    private static final int DEF_AST = 16, DEF_BUL = 10, DEF_PWR = 4;
+    private final SpaceGame game;
+    private int tickDelay = SpaceGame.BASE_MS;  // шаг симуляции, по умолчанию 25 Гц
+    private static final int MAX_SKIP = 5;  // макс. тиков без отрисовки
+    private int fps = 0, tps = 0;      // кадров и тиков за последнюю секунду
+    private Snapshot view;             // что рисует кадр партии
+    private final Snapshot frameSnap;  // без Sim-Thread: вид прямо на массивы игры
+    private static final boolean DEBUG = false;
+    private int allocTicks = 0;        // тики с профайлером, на которых куча уменьшилась (должно быть 0)
+    private int allocFrames = 0;       // то же для кадров (без сборки строк самого оверлея)
+
+    // ---------- Sim-Thread: симуляция партии в своём потоке ----------
+    // Поток sim тикает игру с фиксированным шагом и после каждого тика кладёт
+    // снимок в snaps; run() рисует самый свежий (медленный flush не задерживает
+    // тик, а лишние снимки просто не рисуются — halfRate тут не нужен).
+    // Меню, повтор и разбор Game Over остаются в run().
+    private boolean simMode = false;
+    private SnapshotBuffer snaps;
+    private Thread sim;
+    private boolean simOn = false;
+    private int viewSeq;                        // тик последнего нарисованного снимка
+    private int viewAst;                        // астероидов в нём — для телеметрии
+    private boolean simOver = false;            // нарисован снимок с Game Over
+    private boolean profFlip = false;           // аккорд профайлера из потока симуляции
+
+    // ---------- запись и повтор партии ----------
+    // Ядро детерминировано по seed и маскам клавиш, поэтому для повтора хватает
+    // RLE-лога клавиш. Повтор идёт без sleep: время кадра = tick() + draw().
+    private static final String RS_REPLAY = "replay";
+    private static final int LOG_RUNS = 4096;      // пар RLE; ~полчаса обычной игры
+    private final InputLog log = new InputLog(LOG_RUNS);
+    private boolean hasReplay = false;             // в RMS есть сохранённая партия
+    private boolean replayInLog = false;           // log уже держит её (в RMS может быть ещё в очереди)
+    private boolean replaying = false;
+    private final FrameHistogram hist = new FrameHistogram();
+    private long replayMs;
+    private String[] report;                       // строки экрана S_REPORT
+
+    // ---------- рекорды: таблица в памяти, запись в RMS — через фоновый writer ----------
+    private static final String RS_SCORES = "scores";
+    private final HighScores scores = new HighScores();
+    private final RmsWriter writer = new RmsWriter();
+    private String bestLine;                       // "BEST n" на тайтле, null — рекордов нет
+    private String[] overLines;                    // счёт и таблица на экране GAME OVER
+    private int overRank = -1;                     // место этой партии или -1
+
+    // ---------- телеметрия: по записи RMS на партию, хранятся последние TELE_KEEP ----------
+    private static final String RS_TELEMETRY = "telemetry";
+    private static final int TELE_KEEP = 8;
+    private static final String T_STATS_NONE = "no sessions yet", T_STATS_KEYS = "L/R: session  FIRE: back";
+    private final Telemetry tele = new Telemetry();
+    private boolean teleOn = false;                // идёт партия, данные ещё не в RMS целиком
+    private int teleId = 0;                        // запись текущей партии
+    private int teleNext = 1;                      // id записи следующей партии (id в RMS растут)
+    private int[] statIds;                         // записи для экрана STATS, по возрастанию
+    private int statSel;
+    private String statHead;
+    private String[] statLines;
+
+    // ---------- регулятор качества ----------
+    // Уровни меняют только отрисовку, симуляцию не трогают:
+    // 1 — без ближнего слоя звёзд, 2 — и без среднего, 3 — дальний слой стоит
+    // (в грязную область идут только сущности), 4 — рисуем через тик.
+    // Бюджет частиц на каждом уровне вдвое меньше прошлого.
+    // Повтор всегда идёт на уровне 0, чтобы замеры были сравнимы.
+    private final QualityGovernor gov = new QualityGovernor();
+    private boolean halfRate = false;              // уровень 4: этот кадр пропускаем
+    private int partBudget = SpaceGame.PARTICLES;  // живых частиц на уровне 0
+    private int hudLevel = -1;
+
+    // ---------- профайлер: оверлей по аккорду UP+DOWN в S_PLAY ----------
+    // Строки оверлея пересобираются раз в PROF_REFRESH кадров — сам он почти не мусорит.
+    private static final int PROF_CHORD = UP_PRESSED | DOWN_PRESSED;
+    private static final int PROF_REFRESH = 25;
+    private final Profiler prof = new Profiler();
+    private boolean profOn = false;
+    private final Font profFont = Font.getFont(Font.FACE_MONOSPACE, Font.STYLE_PLAIN, Font.SIZE_SMALL);
+    private final String[] profLines = new String[Profiler.PHASES + 6];
+    private int profAge = 0;
+    private final int profW, profH;
+
+    // ---------- фоновые звёзды: 3 слоя параллакса ----------
+    // Звёзды слоя лежат в STRIPS узких полосах по STRIP_H строк: полосы — клетки
+    // TiledLayer шириной W на колонке высотой starPeriod (≥ H + STRIP_H), пустые
+    // клетки не рисуются. Картинка слоя — только сами полосы (W × STRIPS·STRIP_H
+    // с альфой), а не весь экран. Слой прокручивается на 1..3 px/тик и рисуется
+    // двумя paint() со стыком. В грязную область сдвинутый слой кладёт по полосе
+    // (от старого места до нового, по ширине её звёзд) — цена кадра не зависит
+    // от числа звёзд в полосе.
+    private static final int STRIPS = 8, STRIP_H = 3, STARS_PER_STRIP = 8;
+    private static final int[] STAR_COLOR = {0x666666, 0xAAAAAA, 0xFFFFFF};
+    private final TiledLayer[] starLayer = new TiledLayer[3];
+    private final int[][] stripY = new int[3][STRIPS];                // верх полосы в колонке слоя
+    private final int[][] stripX0 = new int[3][STRIPS], stripX1 = new int[3][STRIPS];   // где в полосе звёзды
+    private final int starPeriod;
+    private final int[] starOff = new int[3];   // сдвиг слоя, 0..starPeriod-1
+    private final int[] drawnOff = new int[3];  // сдвиг слоя в последнем кадре партии
+
+    // ---------- спрайты: кадры всех игровых листов из одного атласа ----------
+    private Atlas atlas;                       // null — рисуем фигурами
+    private boolean slicedSprites = false;     // кадры — отдельные картинки (Atlas.slice)
+    private String spriteInfo = "";            // бэкенд, время загрузки и куча — для ABOUT
+    // листы, отмасштабированные под cell: запись на лист, внутри — cell, для которой считали
+    private static final String RS_SPRITES = "sprites";
+    private static final int[] AST_ENTRY = {Atlas.AST_S, Atlas.AST_M, Atlas.AST_L};   // по aKind
+    private static final int[] EXP_ENTRY = {Atlas.EXP_S, Atlas.EXP_M, Atlas.EXP_L};
+
+    // ---------- грязные прямоугольники ----------
+    // не больше DIRTY_RECTS сбросов за кадр: лишние прямоугольники сливаются с ближними
+    private static final int DIRTY_RECTS = 8, DIRTY_FULL_PCT = 50;
+    private final DirtyRegion dirty;
+    private int[] prevX, prevY, prevW, prevH, curX, curY, curW, curH; // границы прошлого/текущего кадра
+    private int prevCount = 0, curCount = 0;
+    private int drawnState = -1;
+
+    // ---------- текст и HUD: метрики и строки считаются один раз ----------
+    private Graphics gfx;                       // графика offscreen-буфера, берём один раз
+    private final Font font = Font.getDefaultFont();
+    private final int fontH;
+    private static final String T_NAME = "SPACE ASTEROIDS";
+    private static final String T_CONTINUE = "FIRE to continue";
+    private static final String T_SELECT = "FIRE to select";
+    private static final String[] MENU = {"START", "REPLAY", "STATS", "ABOUT"};
+    private static final String T_BY = "by openm1ke", T_VER = "2025  v1.0", T_BACK = "FIRE: back";
+    private static final String T_OVER = "GAME OVER", T_OVER_TITLE = "FIRE: title";
+    private static final String T_OVER_RESTART = "FIRE: restart   LEFT: title";
+    private final int wName, wContinue, wSelect, wBack, wOver, wOverTitle, wOverRestart;
+    private final int[] menuW = new int[MENU.length];
+
+    // HUD (счёт + HP) перерисовывается только при изменениях. Изменяемая картинка в MIDP
+    // непрозрачна, поэтому рисуем в hudBuf и снимаем в hudPix с прозрачным чёрным фоном —
+    // кадр выводит его drawRGB, и звёзды с астероидами под HUD видны. Текст — из готовых
+    // char[], так что и при смене счёта ничего не выделяется.
+    private static final int HUD_BAR_H = 6;
+    private final int hudBarW, hudW, hudH;
+    private final Image hudBuf;
+    private final Graphics hudG;
+    private final int[] hudPix;
+    private final char[] hudText = "Score: 2147483647".toCharArray();   // после префикса — цифры
+    private static final int HUD_PREFIX = 7;
+    private final char[] hudQ = {'Q', '0'};
+    private boolean hudReady = false;
+    private int hudScore = -1, hudHp = -1;
+
+    // ---------- LCG (только для раскладки фона) ----------
+    private int seed = 987654321;
     private int rnd() { seed = (seed * 1103515245 + 12345) & 0x7fffffff; return seed; }
     private int rndRange(int n) { if (n <= 0) return 0; int r = rnd() % n; return (r < 0) ? -r : r; }
 
-    public SpaceCanvas() {
-        super(true); // getKeyStates()
+    public SpaceCanvas() { this(DEF_AST, DEF_BUL, DEF_PWR); }
+
+    public SpaceCanvas(int maxAst, int maxBul, int maxPwr) {
+        super(false); // getKeyStates() + keyPressed(), чтобы будить цикл в меню
         W = this.getWidth();
         H = this.getHeight();
 
-        cell = Math.max(4, W / cols);
-        groundY = H - cell * 2;
+        game = new SpaceGame(W, H, maxAst, maxBul, maxPwr);
+        view = frameSnap = new Snapshot(game, false);
+
+        fontH = font.getHeight();
+        wName = font.stringWidth(T_NAME);
+        wContinue = font.stringWidth(T_CONTINUE);
+        wSelect = font.stringWidth(T_SELECT);
+        wBack = font.stringWidth(T_BACK);
+        wOver = font.stringWidth(T_OVER);
+        wOverTitle = font.stringWidth(T_OVER_TITLE);
+        wOverRestart = font.stringWidth(T_OVER_RESTART);
+        for (int i = 0; i < MENU.length; i++) menuW[i] = font.stringWidth(MENU[i]);
+
+        hudBarW = Math.min(W - 8, 84);
+        hudW = Math.max(hudBarW + 1, font.stringWidth("Score: 000000  Q0"));
+        hudH = fontH + 2 + HUD_BAR_H + 1;
+        hudBuf = Image.createImage(hudW, hudH);
+        hudG = hudBuf.getGraphics();
+        hudPix = new int[hudW * hudH];
+        hudG.setFont(font);
+
+        gfx = getGraphics();
+        gfx.setFont(font);
+
+        profW = Math.min(W, profFont.stringWidth("part 256/256 00.0/100") + 4);
+        profH = Math.min(H, profLines.length * profFont.getHeight() + 4);
+
+        starPeriod = ((H + STRIP_H - 1) / STRIP_H + 1) * STRIP_H;
+        dirty = new DirtyRegion(W, H, DIRTY_RECTS, DIRTY_FULL_PCT);
+        int nb = maxAst * 2 + maxPwr + maxBul + 2;
+        prevX = new int[nb]; prevY = new int[nb]; prevW = new int[nb]; prevH = new int[nb];
+        curX = new int[nb];  curY = new int[nb];  curW = new int[nb];  curH = new int[nb];
+
+        // первый кадр — сразу splash, остальное догрузится на нём
+        try { splashImg = Image.createImage("/img/splash.png"); }   // 240×320 (или любой)
+        catch (Exception e) { splashImg = null; }
 
-        loadSprites();
+        state = S_SPLASH;
+    }
 
-//        shipX = W / 2;
-//        shipY = groundY - shipH/2 - 2;
-//        shipSpeed = Math.max(2, cell / 3);
-//        if (ship != null) ship.setRefPixelPosition(shipX, shipY);
+    private boolean assetsReady() { return loaded == LOAD_STEPS; }
 
-        initStars();
+    // шаги загрузки, пока не кончится квант (хотя бы один шаг за тик)
+    private void loadSlice() {
+        long end = System.currentTimeMillis() + LOAD_SLICE;
+        do {
+            loadStep(loaded++);
+        } while (loaded < LOAD_STEPS && System.currentTimeMillis() < end);
+    }
 
-        state = S_SPLASH;
+    private void loadStep(int step) {
+        switch (step) {
+            case 0: loadAtlas(); break;
+            case 1:
+                try { titleLogo = Image.createImage("/img/title.png"); } catch (Exception ignored) { titleLogo = null; }
+                break;
+            case 2: initStars(0); break;
+            case 3: initStars(1); initStars(2); break;
+            case 4: hasReplay = loadReplay(); loadScores(); loadTeleNext(); break;
+        }
     }
 
-    private void loadSprites() {
+    // слой l: полоса k — тайл k+1; полосы разложены по колонке примерно поровну,
+    // каждая — в случайной клетке своего участка
+    private void initStars(int l) {
         try {
-            // корабль (31×48), 3 кадра
-            Image shipSheet = Image.createImage("/img/ship48_sheet.png");
-            ship = new Sprite(shipSheet, shipW, shipH);
-            ship.defineReferencePixel(shipW/2, shipH/2);
-            ship.setFrameSequence(new int[]{0,1,2,1});
-            ship.setFrame(0);
-
-            // астероиды tight 12 кадров
-            astS = Image.createImage("/img/asteroid_small16_sheet.png");        // 16×16×12
-            astM = Image.createImage("/img/asteroid_med24_tight_sheet.png");    // 24×24×12
-            astL = Image.createImage("/img/asteroid_big32_tight_sheet.png");    // 32×32×12
-
-            // взрывы
-            expS = Image.createImage("/img/exp16_sheet.png");
-            expM = Image.createImage("/img/exp24_sheet.png");
-            expL = Image.createImage("/img/exp32_sheet.png");
-
-            // звезда-хилка
-            starSheet = Image.createImage("/img/stars_sprite_16x16.png"); // 11 кадров
-            splashImg = Image.createImage("/img/splash.png");       // 240×320 (или любой)
-            try { titleLogo = Image.createImage("/img/title.png"); } catch (Exception ignored) { titleLogo = null; }
-
-            // позиция корабля
-            shipX = W / 2;
-            shipY = groundY - shipH/2 - 2;
-            shipSpeed = Math.max(2, cell / 3);
-            if (ship != null) ship.setRefPixelPosition(shipX, shipY);
-        } catch (Exception e) {
+            // изменяемые картинки в MIDP непрозрачны — собираем ARGB и createRGBImage
+            int[] argb = new int[W * STRIPS * STRIP_H];
+            int c = 0xFF000000 | STAR_COLOR[l];
+            int rows = starPeriod / STRIP_H, span = rows / STRIPS;
+            for (int k = 0; k < STRIPS; k++) {
+                int x0 = W, x1 = 0;
+                for (int i = 0; i < STARS_PER_STRIP; i++) {
+                    int x = rndRange(W);
+                    argb[(k * STRIP_H + rndRange(STRIP_H)) * W + x] = c;
+                    if (x < x0) x0 = x;
+                    if (x >= x1) x1 = x + 1;
+                }
+                stripX0[l][k] = x0; stripX1[l][k] = x1;
+                stripY[l][k] = (k * span + rndRange(span)) * STRIP_H;
+            }
+            TiledLayer t = new TiledLayer(1, rows, Image.createRGBImage(argb, W, STRIPS * STRIP_H, true), W, STRIP_H);
+            for (int k = 0; k < STRIPS; k++) t.setCell(0, stripY[l][k] / STRIP_H, k + 1);
+            starLayer[l] = t;
+        } catch (Throwable e) {
+            // не хватило памяти — без этого слоя
+            starLayer[l] = null;
+        }
+    }
+
+    /** Выбор бэкенда спрайтов; вызывать до start(). */
+    public void setSlicedSprites(boolean on) { slicedSprites = on; }
+
+    /** Сколько частиц одновременно (0 — без частиц, максимум SpaceGame.PARTICLES). */
+    public void setParticleBudget(int n) {
+        partBudget = (n < 0) ? 0 : Math.min(n, SpaceGame.PARTICLES);
+    }
+
+    /** Частота симуляции в Гц (15 — для слабых телефонов); вызывать до start(). */
+    public void setTickRate(int hz) {
+        if (hz <= 0) return;
+        game.setTickMs(1000 / hz);
+        tickDelay = game.tickMs;
+    }
+
+    /** Sim-Thread: тикать партию в отдельном потоке (многоядерные телефоны и эмуляторы). */
+    public void setSimThread(boolean on) {
+        simMode = on;
+        if (on && snaps == null) snaps = new SnapshotBuffer(game);
+    }
+
+    // корабль, астероиды, взрывы, звезда-хилка — один атлас (или нарезанные из него кадры);
+    // время и прирост кучи меряем, чтобы выбрать бэкенд под телефон
+    private void loadAtlas() {
+        Runtime rt = Runtime.getRuntime();
+        rt.gc();
+        long free0 = rt.freeMemory(), t0 = System.currentTimeMillis();
+        String how = "";
+        try {
+            int cell = game.cell;
+            atlas = (cell == SpaceGame.BASE_CELL) ? null : loadSpriteCache(cell);
+            if (atlas != null) how = "cached ";
+            else {
+                atlas = Atlas.load();
+                if (cell != SpaceGame.BASE_CELL) {
+                    atlas.scale(cell);
+                    how = "scaled ";
+                    saveSpriteCache();
+                }
+            }
+            setMasks();
+            if (slicedSprites) atlas.slice();
+        } catch (Throwable e) {
             System.err.println("Error loading sprites");
-            ship = null;
-            astS = astM = astL = null;
-            expS = expM = expL = null;
-            starSheet = null;
+            atlas = null;
+            spriteInfo = "sprites: failed";
+            return;
         }
+        long ms = System.currentTimeMillis() - t0;
+        rt.gc();
+        long heap = free0 - rt.freeMemory();
+        spriteInfo = how + (atlas.sliced() ? "sliced " : "atlas ") + ms + "ms " + (heap >> 10) + "K";
+        System.out.println("sprites: " + spriteInfo);
     }
 
-    private void initStars() {
-        for (int i = 0; i < STARS; i++) {
-            sx[i] = rndRange(W);
-            sy[i] = rndRange(H);
-            sl[i] = 1 + rndRange(3);
+    // маски кадров для точных коллизий; если спрайт не совпал по размеру с
+    // коллизиями игры (не тот масштаб), остаёмся на геометрии
+    private void setMasks() {
+        if (atlas.fw[Atlas.SHIP] != game.shipW || atlas.fh[Atlas.SHIP] != game.shipH) return;
+        PixelMask[][] am = new PixelMask[3][];
+        for (int k = 0; k < 3; k++) {
+            int e = AST_ENTRY[k];
+            if (atlas.fw[e] != game.astSize(k) || atlas.fh[e] != game.astSize(k)
+                    || atlas.frames[e] < SpaceGame.AST_FRAMES) return;
+            am[k] = atlas.masks(e);
+        }
+        game.setMasks(am, atlas.masks(Atlas.SHIP));
+    }
+
+    // null — кэша нет или он для другой клетки (другой экран)
+    private Atlas loadSpriteCache(int cell) {
+        RecordStore rs = null;
+        try {
+            rs = RecordStore.openRecordStore(RS_SPRITES, false);
+            Atlas a = new Atlas();
+            for (int e = 0; e < Atlas.COUNT; e++) a.fromBytes(e, rs.getRecord(e + 1), cell);
+            return a;
+        } catch (Throwable e) {
+            return null;
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
+        }
+    }
+
+    // старый кэш (от другого экрана) удаляем целиком и пишем заново
+    private void saveSpriteCache() {
+        RecordStore rs = null;
+        try {
+            try { RecordStore.deleteRecordStore(RS_SPRITES); } catch (Exception ignored) {}
+            rs = RecordStore.openRecordStore(RS_SPRITES, true);
+            for (int e = 0; e < Atlas.COUNT; e++) {
+                byte[] b = atlas.toBytes(e);
+                rs.addRecord(b, 0, b.length);
+            }
+        } catch (Throwable e) {
+            System.err.println("Sprite cache not saved");
+            if (rs != null) try { rs.closeRecordStore(); rs = null; RecordStore.deleteRecordStore(RS_SPRITES); } catch (Exception ignored) {}
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
         }
     }
 
@@ -188,54 +416,293 @@ public class SpaceCanvas extends GameCanvas implements Runnable {
     public void start() {
         if (loop == null) {
             running = true; paused = false;
+            writer.start();
             loop = new Thread(this);
             loop.start();
-        } else paused = false;
+        } else {
+            paused = false;
+            wakeUp();
+        }
+    }
+    public void pause() { paused = true; flushTelemetry(); }
+
+    // после перекрытия системным окном экран мог испортиться — следующий кадр целиком
+    protected void showNotify() { hidden = false; drawnState = -1; wakeUp(); }
+    protected void hideNotify() { hidden = true; }
+    protected void keyPressed(int keyCode) { wakeUp(); }
+    protected void keyReleased(int keyCode) { wakeUp(); }   // иначе keysPrev не узнает об отпускании
+
+    /** Остановить цикл и дождаться выхода потока. */
+    public void stop() {
+        Thread t = loop;
+        running = false; loop = null;
+        wakeUp();
+        if (t != null && t != Thread.currentThread()) {
+            try { t.join(); } catch (InterruptedException ignored) {}
+        }
+        endSim();
+        flushTelemetry();
+        writer.stop();   // дописывает очередь
+    }
+
+    private void wakeUp() {
+        synchronized (wake) { woken = true; wake.notifyAll(); }   // и цикл, и поток симуляции
     }
-    public void pause() { paused = true; }
-    public void stop()  { running = false; loop = null; }
 
+    // меню: не сплэш (там идёт загрузка и таймер) и не игра
+    private boolean idleState() { return state != S_PLAY && state != S_SPLASH; }
+
+    // Фиксированный шаг: симуляция всегда идёт с частотой 1000/tickDelay Гц,
+    // при отставании пропускаем отрисовку (но не больше MAX_SKIP тиков подряд).
+    // Пауза и скрытый экран — wait() без таймаута; меню — wait() до нажатия или мигания.
     public void run() {
+        long next = System.currentTimeMillis();
+        long statT = next;
+        int frames = 0, ticks = 0;
         while (running) {
-            long t0 = System.currentTimeMillis();
-            if (!paused) {
-                input();
-                if (state == S_PLAY) {
-                    updateStars();
-                    updateBullets();
-                    spawnAsteroids();
-                    updateAsteroids();
-                    updatePowerups();
-                    checkCollisions();
-                } else {
-                    // на заставке/титуле/about/gameover — крутим только фон для живости
-                    updateStars();
-
-                    // авто-переход со сплэша на тайтл
-                    if (state == S_SPLASH) {
-                        if (++splashTicks >= SPLASH_DURATION) {
-                            splashTicks = 0;
-                            state = S_TITLE;
-                        }
+            synchronized (wake) {
+                if (paused || hidden) {
+                    try { wake.wait(); } catch (InterruptedException ignored) {}
+                    next = System.currentTimeMillis();    // после паузы не догоняем пропущенное
+                    continue;
+                }
+            }
+            long now = System.currentTimeMillis();
+
+            if (idleState()) {
+                // ввод из getKeyStates() защёлкнут с прошлого опроса — нажатие не теряется
+                tick();
+                boolean blink = ((now / BLINK_MS) & 1) == 0;
+                if (blink != blinkOn) { blinkOn = blink; if (state == S_TITLE) menuDirty = true; }
+                if (menuDirty || drawnState != state) { menuDirty = false; draw(); }
+                if (idleState()) {
+                    long wait = (state == S_TITLE) ? BLINK_MS - now % BLINK_MS : 0;   // 0 — до нажатия
+                    synchronized (wake) {
+                        if (running && !paused && !hidden && !woken)
+                            try { wake.wait(wait); } catch (InterruptedException ignored) {}
+                        woken = false;
                     }
                 }
+                next = System.currentTimeMillis();
+                continue;
+            }
+
+            if (simMode && !replaying && state == S_PLAY) {
+                // тики — в потоке симуляции, здесь только кадры; ждём снимок, а не спим
+                if (sim == null) startSim();
+                int steps = drawSnapshot();
+                if (steps > 0) {
+                    frames++; ticks += steps;
+                    long t = System.currentTimeMillis();
+                    if (t - statT >= 1000) {
+                        fps = frames; tps = ticks;
+                        frames = ticks = 0;
+                        statT = t;
+                    }
+                }
+                if (simOver) { endSim(); endGame(); }
+                next = System.currentTimeMillis();
+                continue;
+            }
+
+            if (profOn) prof.beginFrame();
+            if (replaying) {
+                // повтор: без sleep и без догонялок — тик, кадр, замер
+                tick();
                 draw();
+                long t = System.currentTimeMillis();
+                hist.add((int) (t - now));
+                if (profOn) prof.endFrame(tickDelay);
+                if (!replaying) finishReplay(t);
+                next = t;
+                Thread.yield();
+                continue;
+            }
+
+            int steps = 0;
+            while (now >= next && steps < MAX_SKIP) {
+                tick();
+                next += tickDelay;
+                steps++;
             }
-            int sleep = tickDelay - (int)(System.currentTimeMillis() - t0);
-            if (sleep < 5) sleep = 5;
+            // отстали больше чем на MAX_SKIP тиков — долг сбрасываем, игра замедляется
+            if (now >= next) next = now + tickDelay;
+            halfRate = steps > 0 && quality() >= 4 && !halfRate;
+            if (steps > 0 && !halfRate) {
+                draw(); frames++;
+                if (profOn) prof.endFrame(tickDelay * steps);
+            }
+            ticks += steps;
+
+            long frameStart = now;
+            now = System.currentTimeMillis();
+            if (steps > 0) frameStats(frameStart, now, steps);
+            if (now - statT >= 1000) {
+                fps = frames; tps = ticks;
+                frames = ticks = 0;
+                statT = now;
+            }
+            long sleep = next - now;
+            if (sleep < 1) sleep = 1;   // отдаём CPU системе хотя бы на 1 мс
             try { Thread.sleep(sleep); } catch (InterruptedException ignored) {}
         }
     }
 
-    // ---------- ввод ----------
-    private void input() {
+    // время кадра — в телеметрию и регулятор качества
+    private void frameStats(long frameStart, long now, int steps) {
+        int ms = (int) (now - frameStart);
+        if (teleOn) tele.frame(ms, now, viewAst, Runtime.getRuntime().freeMemory());
+        if (state == S_PLAY && gov.frame(ms, tickDelay * steps))
+            drawnState = -1;   // слои фона появились/пропали — следующий кадр целиком
+    }
+
+    // один шаг: фон, меню или тик игры
+    private void tick() {
         int ks = getKeyStates();
+        if (profOn) prof.lap(Profiler.P_INPUT);
+        updateStars();
+        if (profOn) prof.lap(Profiler.P_STARS);
+
+        if (state == S_PLAY) {
+            if (replaying) {
+                ks = log.next();
+                if (ks < 0) { replaying = false; return; }   // лог кончился
+            }
+            playTick(ks);
+            if (game.gameOver) {
+                if (replaying) { replaying = false; return; }
+                endGame();
+            }
+            return;
+        }
+
+        input(ks);
+
+        // догрузка (после первого показанного кадра) и авто-переход со сплэша на тайтл
+        if (state == S_SPLASH) {
+            if (!assetsReady() && drawnState == S_SPLASH) loadSlice();
+            if (++splashTicks >= SPLASH_DURATION && assetsReady()) {
+                splashTicks = 0;
+                state = S_TITLE;
+            }
+        }
+    }
+
+    // тик партии: лог и телеметрия, аккорд профайлера, шаг игры (с Sim-Thread — в потоке sim)
+    private void playTick(int ks) {
+        if (!replaying) {
+            if (!log.record(ks) && log.score < 0) log.score = game.score;   // лог полон: дальше не пишем
+            tele.ticks++;
+        }
+        if ((ks & PROF_CHORD) == PROF_CHORD && (keysPrev & PROF_CHORD) != PROF_CHORD) {
+            if (sim != null) profFlip = true;   // переключит поток отрисовки
+            else setProfiler(!profOn);
+        }
+        game.parts.limit = partBudget >> quality();
+        // меряем только в одном потоке: с Sim-Thread кучу в это время трогает отрисовка
+        boolean meas = profOn && sim == null;
+        long free = meas ? Runtime.getRuntime().freeMemory() : 0;
+        game.tick(ks);
+        if (meas && Runtime.getRuntime().freeMemory() < free) allocTicks++;
+        keysPrev = ks;
+    }
+
+    private void endGame() {
+        setProfiler(false);
+        state = S_GAMEOVER;
+        gameOverScores();
+        if (!log.full) log.score = game.score;
+        saveReplay();
+        flushTelemetry();
+        teleOn = false;
+    }
+
+    // ---------- Sim-Thread ----------
+    private final class SimLoop implements Runnable {
+        public void run() { simLoop(); }
+    }
+
+    private void startSim() {
+        snaps.clear();
+        viewSeq = 0;
+        simOver = false;
+        simOn = true;
+        sim = new Thread(new SimLoop());
+        sim.start();
+    }
+
+    // дождаться выхода потока симуляции (Game Over или stop())
+    private void endSim() {
+        Thread t = sim;
+        simOn = false;
+        wakeUp();
+        if (t != null && t != Thread.currentThread()) {
+            try { t.join(); } catch (InterruptedException ignored) {}
+        }
+        sim = null;
+        simOver = false;
+    }
+
+    // фиксированный шаг, как в run(), но без кадров: после каждого тика — снимок.
+    // На Game Over поток выходит, разбор партии делает run() по последнему снимку
+    private void simLoop() {
+        long next = System.currentTimeMillis();
+        int seq = 0;
+        while (running && simOn) {
+            synchronized (wake) {
+                if (paused || hidden) {
+                    try { wake.wait(); } catch (InterruptedException ignored) {}
+                    next = System.currentTimeMillis();
+                    continue;
+                }
+            }
+            long now = System.currentTimeMillis();
+            for (int steps = 0; now >= next && steps < MAX_SKIP; steps++) {
+                playTick(getKeyStates());
+                next += tickDelay;
+                snaps.publish(game, ++seq);
+                if (game.gameOver) return;
+            }
+            if (now >= next) next = now + tickDelay;
+            long sleep = next - System.currentTimeMillis();
+            if (sleep < 1) sleep = 1;
+            try { Thread.sleep(sleep); } catch (InterruptedException ignored) {}
+        }
+    }
+
+    // кадр по самому свежему снимку (ждём его не дольше двух тиков);
+    // возвращает, сколько тиков прошло с прошлого кадра, 0 — снимка нет
+    private int drawSnapshot() {
+        Snapshot s = snaps.acquire(viewSeq, tickDelay * 2);
+        if (s == null) return 0;
+        int steps = s.seq - viewSeq;
+        viewSeq = s.seq;
+        if (profFlip) { profFlip = false; setProfiler(!profOn); }
+        long t0 = System.currentTimeMillis();
+        if (profOn) prof.beginFrame();
+        for (int i = Math.min(steps, MAX_SKIP); i > 0; i--) updateStars();
+        if (profOn) prof.lap(Profiler.P_STARS);
+        view = s;
+        draw();
+        if (profOn) prof.endFrame(tickDelay * steps);
+        viewAst = s.ent.count[Entities.T_AST];
+        simOver = s.gameOver;
+        frameStats(t0, System.currentTimeMillis(), steps);
+        view = frameSnap;
+        snaps.release();
+        return steps;
+    }
+
+    // ---------- ввод в меню ----------
+    private void input(int ks) {
         int press = ks & ~keysPrev;   // новые нажатия
         keysPrev = ks;
+        if (press != 0) menuDirty = true;
 
         // --- SPLASH ---
         if (state == S_SPLASH) {
-            if ((press & (FIRE_PRESSED | LEFT_PRESSED | RIGHT_PRESSED | UP_PRESSED | DOWN_PRESSED)) != 0) {
+            if ((press & (FIRE_PRESSED | LEFT_PRESSED | RIGHT_PRESSED | UP_PRESSED | DOWN_PRESSED)) != 0
+                    && assetsReady()) {
                 splashTicks = 0;
                 state = S_TITLE;
             }
@@ -244,14 +711,24 @@ public class SpaceCanvas extends GameCanvas implements Runnable {
 
         // --- TITLE ---
         if (state == S_TITLE) {
-            if ((press & (UP_PRESSED | LEFT_PRESSED)) != 0)  menuSel = (menuSel + 1) & 1;
-            if ((press & (DOWN_PRESSED | RIGHT_PRESSED)) != 0) menuSel = (menuSel + 1) & 1;
+            if ((press & (UP_PRESSED | LEFT_PRESSED)) != 0)  menuSel = (menuSel + MENU.length - 1) % MENU.length;
+            if ((press & (DOWN_PRESSED | RIGHT_PRESSED)) != 0) menuSel = (menuSel + 1) % MENU.length;
             if ((press & FIRE_PRESSED) != 0) {
                 if (menuSel == 0) {
-                    resetGame();
+                    log.begin(game.seed(), W, H, tickDelay);
+                    log.score = -1;
+                    tele.begin(System.currentTimeMillis(), W, H, game.cell);
+                    teleId = teleNext++;
+                    teleOn = true;
+                    replayInLog = false;
+                    game.reset();
+                    allocTicks = allocFrames = 0;
                     state = S_PLAY;
-                    keysPrev = getKeyStates();
-                    shootCooldown = 8;
+                } else if (menuSel == 1) {
+                    if (hasReplay) startReplay();
+                } else if (menuSel == 2) {
+                    loadStats();
+                    state = S_STATS;
                 } else {
                     state = S_ABOUT;
                 }
@@ -259,6 +736,28 @@ public class SpaceCanvas extends GameCanvas implements Runnable {
             return;
         }
 
+        // --- STATS ---
+        if (state == S_STATS) {
+            int n = (statIds == null) ? 0 : statIds.length;
+            if (n > 0 && (press & LEFT_PRESSED) != 0)  showStat((statSel + n - 1) % n);
+            if (n > 0 && (press & RIGHT_PRESSED) != 0) showStat((statSel + 1) % n);
+            if ((press & FIRE_PRESSED) != 0) {
+                statIds = null; statLines = null;
+                state = S_TITLE;
+            }
+            return;
+        }
+
+        // --- REPORT ---
+        if (state == S_REPORT) {
+            if ((press & (FIRE_PRESSED | LEFT_PRESSED)) != 0) {
+                report = null;
+                game.reset();
+                state = S_TITLE;
+            }
+            return;
+        }
+
         // --- ABOUT ---
         if (state == S_ABOUT) {
             if ((press & FIRE_PRESSED) != 0 || (press & LEFT_PRESSED) != 0) {
@@ -269,482 +768,514 @@ public class SpaceCanvas extends GameCanvas implements Runnable {
 
         // --- GAMEOVER ---
         if (state == S_GAMEOVER) {
-            if ((press & FIRE_PRESSED) != 0) {
-                resetGame();
-                state = S_TITLE;   // вместо S_PLAY
-            } else if ((press & LEFT_PRESSED) != 0) {
-                resetGame();
+            if ((press & (FIRE_PRESSED | LEFT_PRESSED)) != 0) {
+                game.reset();
                 state = S_TITLE;
             }
-            return;
-        }
-
-        if (shipExploding) return; // ждём окончания взрыва
-
-
-        if ((ks & LEFT_PRESSED)  != 0) shipX -= shipSpeed;
-        if ((ks & RIGHT_PRESSED) != 0) shipX += shipSpeed;
-
-        if (shipX < shipW/2) shipX = shipW/2;
-        if (shipX > W - shipW/2) shipX = W - shipW/2;
-        if (ship != null) ship.setRefPixelPosition(shipX, shipY);
-
-        if (shootCooldown > 0) shootCooldown--;
-        if ((press & FIRE_PRESSED) != 0 && shootCooldown == 0 && !shipExploding) {
-            fireBullet();
-            shootCooldown = 6;
         }
     }
 
-    private void fireBullet() {
-        for (int i = 0; i < MAX_BUL; i++) if (!bLive[i]) {
-            bLive[i] = true;
-            bx[i] = shipX;
-            by[i] = shipY - shipH/2 - 2;
-            bvy[i] = -cell;
-            return;
-        }
+    private void setProfiler(boolean on) {
+        if (on == profOn) return;
+        profOn = on;
+        if (on) { prof.reset(); profAge = PROF_REFRESH; allocTicks = allocFrames = 0; }
+        game.prof = (on && sim == null) ? prof : null;   // фазы тика другого потока не меряем
     }
 
-    private void resetGame() {
-        for (int i = 0; i < MAX_AST; i++) {
-            aLive[i] = false; aSprite[i] = null;
-            eSprite[i] = null;
-        }
-        for (int i = 0; i < MAX_BUL; i++) bLive[i] = false;
-        for (int i = 0; i < MAX_PWR; i++) { pLive[i] = false; pSprite[i] = null; }
-
-        // корабль
-        shipExploding = false;
-        shipExp = null;
-        shipX = W / 2;
-        shipY = groundY - shipH/2 - 2;
-        if (ship != null) {
-            ship.setFrame(0);
-            ship.setRefPixelPosition(shipX, shipY);
-        }
-
-        score = 0; gameOver = false;
-        spawnCounter = 0; shootCooldown = 0;
-        shipAnimTick = 0;
+    // ---------- повтор ----------
+    private void startReplay() {
+        if (replayInLog) log.rewind();
+        else if (!loadReplay()) { hasReplay = false; return; }
+        game.setSeed(log.seed);
+        game.setTickMs(log.tickMs);
+        game.reset();
+        hist.reset();
+        keysPrev = 0;
+        replaying = true;
+        state = S_PLAY;
+        replayMs = System.currentTimeMillis();
+    }
 
-        hp = hpMax;
-        invTicks = 0;
+    // отчёт собираем один раз, печатаем в консоль и показываем на S_REPORT
+    private void finishReplay(long now) {
+        long total = now - replayMs;
+        // полный лог кончается вместе с Game Over, оборванный — раньше
+        boolean same = (game.gameOver != log.full) && game.score == log.score;
+        String[] h = hist.lines();
+        String[] r = new String[5 + h.length];
+        r[0] = "REPLAY " + log.ticks + " ticks, " + 1000 / log.tickMs + " Hz";
+        r[1] = "total " + total + " ms, " + hist.frames + " fr";
+        r[2] = "avg " + hist.avgTenths() / 10 + "." + hist.avgTenths() % 10 + " ms, max " + hist.maxMs + " ms";
+        r[3] = (log.w == W && log.h == H) ? W + "x" + H : W + "x" + H + " (rec " + log.w + "x" + log.h + ")";
+        r[4] = same ? "score " + game.score + " OK" : "DESYNC: " + game.score + " vs " + log.score;
+        for (int i = 0; i < h.length; i++) r[5 + i] = h[i];
+        for (int i = 0; i < r.length; i++) System.out.println(r[i]);
+        setProfiler(false);
+        game.setTickMs(tickDelay);
+        report = r;
+        state = S_REPORT;
     }
 
-    // ---------- фоновые звёзды ----------
-    private void updateStars() {
-        for (int i = 0; i < STARS; i++) {
-            sy[i] += sl[i];
-            if (sy[i] >= H) {
-                sy[i] = -rndRange(20);
-                sx[i] = rndRange(W);
-                sl[i] = 1 + rndRange(3);
-            }
+    // ---------- рекорды ----------
+    // читаем один раз на сплэше; дальше таблица живёт в памяти
+    private void loadScores() {
+        RecordStore rs = null;
+        try {
+            rs = RecordStore.openRecordStore(RS_SCORES, false);
+            scores.fromBytes(rs.getRecord(1));
+        } catch (Exception e) {
+            // нет записи или чужой формат — начинаем с пустой таблицы
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
         }
+        updateBestLine();
     }
 
-    // ---------- пули ----------
-    private void updateBullets() {
-        for (int i = 0; i < MAX_BUL; i++) if (bLive[i]) {
-            by[i] += bvy[i];
-            if (by[i] < -6) bLive[i] = false;
+    // на Game Over: место в таблице, строки экрана; в RMS — только если попали в таблицу
+    private void gameOverScores() {
+        int score = game.score;
+        overRank = scores.add(score, tele.ticks * tickDelay / 1000);
+        if (overRank >= 0) {
+            if (!writer.put(RS_SCORES, scores.toBytes())) System.err.println("Scores not queued");
+            updateBestLine();
         }
+        String[] t = scores.lines();
+        overLines = new String[1 + t.length];
+        overLines[0] = (overRank == 0 ? "NEW RECORD " : "SCORE ") + score;
+        System.arraycopy(t, 0, overLines, 1, t.length);
     }
 
-    // ---------- астероиды ----------
-    private void spawnAsteroids() {
-        if (++spawnCounter < 6) return; // частота спавна
-        spawnCounter = 0;
-        if ((rnd() & 1) == 0) return;   // шанс 1/2
-
-        int slot = -1;
-        for (int i = 0; i < MAX_AST; i++) if (!aLive[i] && eSprite[i] == null) { slot = i; break; }
-        if (slot < 0) return;
-
-        aLive[slot] = true;
-
-        int kind = rnd() % 3; if (kind < 0) kind = -kind;
-        aKind[slot] = kind;
-
-        Image sheet; int fw, fh, frames = 12;
-        if (kind == 0) { sheet = astS; fw = 16; fh = 16; }
-        else if (kind == 1) { sheet = astM; fw = 24; fh = 24; }
-        else { sheet = astL; fw = 32; fh = 32; }
+    private void updateBestLine() {
+        bestLine = (scores.best() > 0) ? "BEST " + scores.best() : null;
+    }
 
+    private boolean loadReplay() {
+        RecordStore rs = null;
         try {
-            aSprite[slot] = new Sprite(sheet, fw, fh);
-            aSprite[slot].defineReferencePixel(fw/2, fh/2);
-            aSprite[slot].setFrame(rndRange(frames));
+            rs = RecordStore.openRecordStore(RS_REPLAY, false);
+            log.fromBytes(rs.getRecord(1));
+            replayInLog = true;
+            return true;
         } catch (Exception e) {
-            aSprite[slot] = null;
-        }
-
-        int span = W - 2*cell; if (span < 1) span = 1;
-        ax[slot] = cell + rndRange(span);
-        ay[slot] = -(5 + rndRange(60));
-        ar[slot] = fw/2;
-
-        // вертикальная скорость помедленнее (~−33%)
-        avy[slot] = Math.max(1, (slownessByRadius(ar[slot]) * 2) / 3);
-
-        // лёгкий горизонтальный дрейф
-        int drift = rndRange(Math.max(1, cell/3 + 1)) - (cell/6);
-        avx[slot] = drift;
-
-        // вращение медленнее
-        aAnimDelay[slot] = 4 + rndRange(4); // 4..7 тиков/кадр
-        aAnimTick[slot]  = 0;
-    }
-
-    private int slownessByRadius(int r) {
-        int cellSafe = Math.max(1, cell);
-        int ratio = r / cellSafe; if (ratio < 1) ratio = 1;
-        int v = (cellSafe * 2) / ratio;  // чуть медленнее базово (2 вместо 3)
-        if (v < 1) v = 1;
-        if (v > cellSafe) v = cellSafe;
-        return v;
-    }
-
-    private void updateAsteroids() {
-        // движение и анимация астероидов
-        for (int i = 0; i < MAX_AST; i++) if (aLive[i]) {
-            ay[i] += avy[i];
-            ax[i] += avx[i];
-            if (ax[i] < ar[i]) { ax[i] = ar[i]; avx[i] = -avx[i]; }
-            if (ax[i] > W - ar[i]) { ax[i] = W - ar[i]; avx[i] = -avx[i]; }
-
-            if (aSprite[i] != null) {
-                aSprite[i].setRefPixelPosition(ax[i], ay[i]);
-                if (++aAnimTick[i] >= aAnimDelay[i]) {
-                    aAnimTick[i] = 0;
-                    int next = aSprite[i].getFrame() + 1;
-                    if (next >= aSprite[i].getFrameSequenceLength()) next = 0;
-                    aSprite[i].setFrame(next);
-                }
-            }
-            if (ay[i] - ar[i] > H) aLive[i] = false;
-        }
-
-        // тики спрайтов взрыва астероидов
-        for (int i = 0; i < MAX_AST; i++) if (eSprite[i] != null) {
-            if (++eTick[i] >= eDelay[i]) {
-                eTick[i] = 0;
-                int nf = eSprite[i].getFrame() + 1;
-                if (nf >= eFrames) {
-                    eSprite[i] = null; // доиграл
-                } else {
-                    eSprite[i].setFrame(nf);
-                    eSprite[i].setRefPixelPosition(ax[i], ay[i]);
-                }
-            }
-        }
-
-        // анимация корабля (если не взрывается)
-        if (!shipExploding && ship != null && !gameOver) {
-            if (++shipAnimTick >= shipAnimDelay) {
-                shipAnimTick = 0;
-                ship.nextFrame();
-            }
-        }
-
-        // тики взрыва корабля
-        if (shipExploding && shipExp != null) {
-            if (++shipExpTick >= shipExpDelay) {
-                shipExpTick = 0;
-                int nf = shipExp.getFrame() + 1;
-                if (nf >= shipExpFrames) {
-                    shipExploding = false;
-                    shipExp = null;
-                    gameOver = true;
-                    state = S_GAMEOVER;
-                } else {
-                    shipExp.setFrame(nf);
-                    shipExp.setRefPixelPosition(shipX, shipY);
-                }
-            }
+            return false;
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
         }
-
-        // тик неуязвимости
-        if (invTicks > 0) invTicks--;
     }
 
-    // запуск взрыва астероида + шанс дропа звезды
-    private void explodeAsteroid(int idx) {
-        Image esheet; int fw, fh;
-        if (aKind[idx] == 2)      { esheet = expL; fw = 32; fh = 32; }
-        else if (aKind[idx] == 1) { esheet = expM; fw = 24; fh = 24; }
-        else                      { esheet = expS; fw = 16; fh = 16; }
-
+    // раз за партию, на Game Over; пишет фоновый RmsWriter, REPLAY до записи берёт партию из log
+    private void saveReplay() {
         try {
-            eSprite[idx] = new Sprite(esheet, fw, fh);
-            eSprite[idx].defineReferencePixel(fw/2, fh/2);
-            eSprite[idx].setRefPixelPosition(ax[idx], ay[idx]);
-            eSprite[idx].setFrame(0);
-            eTick[idx] = 0;
-            eDelay[idx] = 2; // взрыв медленнее
-        } catch (Exception ignored) { eSprite[idx] = null; }
-
-        // отключаем сам астероид
-        aLive[idx] = false;
-        aSprite[idx] = null;
-
-        // распад
-        int k = aKind[idx];
-        if (k == 2) { // large -> 2 medium
-            spawnChildAsteroid(ax[idx] - ar[idx]/2, ay[idx], 1, -Math.max(1, cell/4));
-            spawnChildAsteroid(ax[idx] + ar[idx]/2, ay[idx], 1,  Math.max(1, cell/4));
-        } else if (k == 1) { // medium -> 2 small
-            spawnChildAsteroid(ax[idx] - ar[idx]/3, ay[idx], 0, -Math.max(1, cell/5));
-            spawnChildAsteroid(ax[idx] + ar[idx]/3, ay[idx], 0,  Math.max(1, cell/5));
-        }
-
-        // шанс 1/5 уронить «звезду»-хилку
-        if ((rnd() % 5) == 0) dropStarAt(ax[idx], ay[idx]);
-    }
-
-    // взрыв корабля
-    private void explodeShip() {
-        shipExploding = true;
-        invTicks = 0;
-        try {
-            shipExp = new Sprite(expL, 32, 32);
-            shipExp.defineReferencePixel(16, 16);
-            shipExp.setRefPixelPosition(shipX, shipY);
-            shipExp.setFrame(0);
-            shipExpTick = 0;
-            shipExpDelay = 2;
-        } catch (Exception ignored) {
-            shipExp = null;
-            shipExploding = false;
-            gameOver = true;
-            state = S_GAMEOVER;
-        }
-    }
-
-    private void spawnChildAsteroid(int x, int y, int kind, int vx) {
-        int slot = -1;
-        for (int i = 0; i < MAX_AST; i++) if (!aLive[i] && eSprite[i] == null) { slot = i; break; }
-        if (slot < 0) return;
-
-        Image sheet; int fw, fh, frames = 12;
-        if (kind == 0) { sheet = astS; fw = 16; fh = 16; }
-        else if (kind == 1) { sheet = astM; fw = 24; fh = 24; }
-        else { sheet = astL; fw = 32; fh = 32; }
-
-        try {
-            aSprite[slot] = new Sprite(sheet, fw, fh);
-            aSprite[slot].defineReferencePixel(fw/2, fh/2);
-            aSprite[slot].setFrame(rndRange(frames));
-        } catch (Exception e) { aSprite[slot] = null; }
-
-        aKind[slot] = kind;
-        aLive[slot] = true;
-        ax[slot] = x;
-        ay[slot] = y;
-        ar[slot] = fw/2;
-        avx[slot] = vx;
-        avy[slot] = Math.max(1, slownessByRadius(ar[slot]));
-        aAnimDelay[slot] = 4 + rndRange(4);
-        aAnimTick[slot]  = 0;
-    }
-
-    // ---------- powerups ----------
-    private void dropStarAt(int x, int y) {
-        int slot = -1;
-        for (int i = 0; i < MAX_PWR; i++) if (!pLive[i]) { slot = i; break; }
-        if (slot < 0 || starSheet == null) return;
-
-        try {
-            pSprite[slot] = new Sprite(starSheet, STAR_W, STAR_H);
-            pSprite[slot].defineReferencePixel(STAR_W/2, STAR_H/2);
-            pSprite[slot].setFrame(rndRange(STAR_FRAMES));
-            pSprite[slot].setRefPixelPosition(x, y);
-        } catch (Exception e) { pSprite[slot] = null; }
-
-        pLive[slot] = true;
-        px[slot] = x;  py[slot] = y;
-        pR[slot] = 7;                          // радиус подбора
-        pvy[slot] = Math.max(1, cell/3);       // медленно падает
-        pDelay[slot] = 5 + rndRange(3);        // 5..7 тиков/кадр
-        pTick[slot] = 0;
-    }
-
-    private void updatePowerups() {
-        for (int i = 0; i < MAX_PWR; i++) if (pLive[i]) {
-            py[i] += pvy[i];
-            if (pSprite[i] != null) {
-                pSprite[i].setRefPixelPosition(px[i], py[i]);
-                if (++pTick[i] >= pDelay[i]) {
-                    pTick[i] = 0;
-                    int nf = pSprite[i].getFrame() + 1;
-                    if (nf >= STAR_FRAMES) nf = 0;
-                    pSprite[i].setFrame(nf);
-                }
-            }
-            if (py[i] - pR[i] > H) { pLive[i] = false; pSprite[i] = null; }
+            if (writer.put(RS_REPLAY, log.toBytes())) { hasReplay = true; replayInLog = true; }
+            else System.err.println("Replay not queued");
+        } catch (IOException e) {
+            System.err.println("Replay not saved");
         }
     }
 
-    private int damageByKind(int kind) {
-        switch (kind) {
-            case 0: return 1; // small
-            case 1: return 2; // medium
-            default: return 3; // large
+    // ---------- телеметрия ----------
+    // Партия целиком — одна запись teleId (id выдаём сами, по порядку); повторный
+    // вызов (пауза, потом Game Over) перезаписывает её. Пишет фоновый RmsWriter и
+    // сам удаляет партии сверх TELE_KEEP. Зовётся и из потока MIDlet'а — отсюда synchronized.
+    private synchronized void flushTelemetry() {
+        if (!teleOn) return;
+        tele.score = game.score;
+        try {
+            if (!writer.put(RS_TELEMETRY, teleId, TELE_KEEP, tele.toBytes())) System.err.println("Telemetry not queued");
+        } catch (IOException e) {
+            System.err.println("Telemetry not saved");
         }
     }
 
-    // ---------- коллизии ----------
-    private void checkCollisions() {
-        if (shipExploding) return;
-
-        // пули ↔ астероиды
-        for (int b = 0; b < MAX_BUL; b++) if (bLive[b]) {
-            int px0 = bx[b], py0 = by[b];
-            for (int a = 0; a < MAX_AST; a++) if (aLive[a]) {
-                int dx = px0 - ax[a];
-                int dy = py0 - ay[a];
-                if (dx*dx + dy*dy <= ar[a]*aR(a)) {
-                    bLive[b] = false;
-                    score += 10;
-                    explodeAsteroid(a);
-                    break;
-                }
-            }
+    // с какого id продолжать записи партий
+    private void loadTeleNext() {
+        RecordStore rs = null;
+        try {
+            rs = RecordStore.openRecordStore(RS_TELEMETRY, false);
+            teleNext = rs.getNextRecordID();
+        } catch (Exception e) {
+            teleNext = 1;
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
         }
+    }
 
-        // прямоугольник корабля
-        int rx = shipX - shipW/2, ry = shipY - shipH/2;
-
-        // подбор звезды → лечим
-        for (int i = 0; i < MAX_PWR; i++) if (pLive[i]) {
-            if (circleIntersectsRect(px[i], py[i], pR[i], rx, ry, shipW, shipH)) {
-                hp = Math.min(hpMax, hp + 2);   // +2 HP
-                pLive[i] = false; pSprite[i] = null;
+    private void loadStats() {
+        statIds = null; statLines = null;
+        statHead = T_STATS_NONE;
+        RecordStore rs = null;
+        try {
+            rs = RecordStore.openRecordStore(RS_TELEMETRY, false);
+            int next = rs.getNextRecordID(), n = 0;
+            int[] ids = new int[TELE_KEEP];
+            for (int id = Math.max(1, next - TELE_KEEP); id < next; id++) {
+                try { if (rs.getRecordSize(id) > 0) ids[n++] = id; } catch (Exception ignored) {}
             }
+            statIds = new int[n];
+            System.arraycopy(ids, 0, statIds, 0, n);
+        } catch (Exception e) {
+            statIds = new int[0];
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
         }
+        if (statIds.length > 0) showStat(statIds.length - 1);   // последняя партия
+    }
 
-        // астероид ↔ корабль
-        for (int a = 0; a < MAX_AST; a++) if (aLive[a]) {
-            if (circleIntersectsRect(ax[a], ay[a], ar[a], rx, ry, shipW, shipH)) {
-
-                if (invTicks == 0) {
-                    hp -= damageByKind(aKind[a]);
-                    if (hp <= 0) { explodeShip(); return; }
-                    invTicks = invDuration;
-                }
-
-                // астероид взрываем/раскалываем
-                explodeAsteroid(a);
-            }
+    private void showStat(int i) {
+        statSel = i;
+        statHead = "STATS " + (i + 1) + "/" + statIds.length;
+        RecordStore rs = null;
+        try {
+            rs = RecordStore.openRecordStore(RS_TELEMETRY, false);
+            Telemetry t = new Telemetry();
+            t.fromBytes(rs.getRecord(statIds[i]));
+            statLines = t.lines();
+        } catch (Exception e) {
+            statLines = new String[] {"record " + statIds[i] + " unreadable"};
+        } finally {
+            if (rs != null) try { rs.closeRecordStore(); } catch (Exception ignored) {}
         }
     }
 
-    private int aR(int a) { return ar[a]; }
+    private int quality() { return replaying ? 0 : gov.level; }
 
-    private boolean circleIntersectsRect(int cx, int cy, int r, int rx, int ry, int rw, int rh) {
-        int nx = (cx < rx) ? rx : (cx > rx+rw ? rx+rw : cx);
-        int ny = (cy < ry) ? ry : (cy > ry+rh ? ry+rh : cy);
-        int dx = cx - nx, dy = cy - ny;
-        return dx*dx + dy*dy <= r*r;
+    // ---------- фоновые звёзды ----------
+    private void updateStars() {
+        if (state == S_PLAY ? quality() >= 3 : idleState()) return;   // фон стоит
+        for (int l = 0; l < 3; l++) {
+            starOff[l] += l + 1;
+            if (starOff[l] >= starPeriod) starOff[l] -= starPeriod;
+        }
     }
 
     // ---------- отрисовка ----------
     private void draw() {
-        Graphics g = getGraphics();
-
-        // фон
-        g.setColor(0x000000); g.fillRect(0, 0, W, H);
-
-        // звёзды фона
-        for (int i = 0; i < STARS; i++) {
-            int c = (sl[i] == 1) ? 0x666666 : (sl[i] == 2 ? 0xAAAAAA : 0xFFFFFF);
-            g.setColor(c); g.fillRect(sx[i], sy[i], 1, 1);
+        Graphics g = gfx;
+
+        if (state == S_PLAY) {
+            if (view == frameSnap) { frameSnap.capture(game); viewAst = game.ent.count[Entities.T_AST]; }
+            if (profOn) updateProfLines();
+            boolean meas = profOn && sim == null;
+            long free = meas ? Runtime.getRuntime().freeMemory() : 0;
+            collectDirty();
+            updateHud();
+            if (dirty.isFull()) {
+                drawPlay(g);
+                if (profOn) prof.lap(Profiler.P_DRAW);
+                flushGraphics();
+            } else {
+                // один проход, отсечённый объемлющим прямоугольником грязных (его площадь
+                // и решает isFull), — сбрасываем только их самих
+                DirtyRegion d = dirty;
+                if (d.bx0 < d.bx1) {
+                    g.setClip(d.bx0, d.by0, d.bx1 - d.bx0, d.by1 - d.by0);
+                    drawPlay(g);
+                    g.setClip(0, 0, W, H);
+                }
+                if (profOn) prof.lap(Profiler.P_DRAW);
+                for (int i = 0; i < dirty.count; i++)
+                    flushGraphics(dirty.x0[i], dirty.y0[i], dirty.x1[i] - dirty.x0[i], dirty.y1[i] - dirty.y0[i]);
+            }
+            if (meas && Runtime.getRuntime().freeMemory() < free) allocFrames++;
+            if (profOn) prof.lap(Profiler.P_FLUSH);
+            return;
         }
+        drawnState = state;
+
+        drawBackground(g);
 
         // экраны
         if (state == S_SPLASH) { drawSplash(g); flushGraphics(); return; }
         if (state == S_TITLE)  { drawTitle(g);  flushGraphics(); return; }
         if (state == S_ABOUT)  { drawAbout(g);  flushGraphics(); return; }
+        if (state == S_REPORT) { drawReport(g); flushGraphics(); return; }
+        if (state == S_STATS)  { drawStats(g);  flushGraphics(); return; }
 
         if (state == S_GAMEOVER) {
-            // простой экран GAME OVER без корабля/пуль
+            // GAME OVER, счёт и таблица рекордов (строка этой партии — жёлтая)
             g.setColor(0x444444); g.drawRect(0, 0, W-1, H-1);
             g.setColor(0xFFFFFF);
-            String a = "GAME OVER";
-            String b = "FIRE: title";
-            int lh = g.getFont().getHeight();
-            int w1 = g.getFont().stringWidth(a);
-            int w2 = g.getFont().stringWidth(b);
-            g.drawString(a, W/2 - w1/2, H/2 - lh, Graphics.TOP | Graphics.LEFT);
-            g.drawString(b, W/2 - w2/2, H/2 + 2, Graphics.TOP | Graphics.LEFT);
+            int y = H/6;
+            g.drawString(T_OVER, W/2 - wOver/2, y, Graphics.TOP | Graphics.LEFT);
+            y += fontH + 2;
+            for (int i = 0; i < overLines.length; i++) {
+                g.setColor((i == 0 || i - 1 == overRank) ? 0xFFD24A : 0xAAAAAA);
+                g.drawString(overLines[i], W/2, y, Graphics.TOP | Graphics.HCENTER);
+                y += fontH + ((i == 0) ? 6 : 1);
+            }
+            g.setColor(0xFFFFFF);
+            g.drawString(T_OVER_TITLE, W/2 - wOverTitle/2, H - fontH - 4, Graphics.TOP | Graphics.LEFT);
             flushGraphics();
+        }
+    }
+
+    private void drawBackground(Graphics g) {
+        // чёрный фон + звёзды: по два paint() на слой (колонка и её хвост над ней)
+        g.setColor(0x000000); g.fillRect(0, 0, W, H);
+        for (int l = 0; l < 3; l++) {
+            TiledLayer t = starLayer[l];
+            if (t == null || !starsShown(l)) continue;
+            int y = starOff[l];
+            t.setPosition(0, y); t.paint(g);
+            if (y > 0) { t.setPosition(0, y - starPeriod); t.paint(g); }
+        }
+    }
+
+    // q1 — без слоя 2, q2 — и без 1
+    private boolean starsShown(int l) {
+        return l == 0 || state != S_PLAY || quality() < 3 - l;
+    }
+
+    // полоса k слоя l со сдвига off на d строк ниже: одна лента от старого места до
+    // нового (если сдвиг больше полосы — оба места порознь) и, если лента заходит
+    // за конец колонки, её хвост сверху экрана
+    private void stripDirty(int l, int k, int off, int d) {
+        if (d > STRIP_H) {
+            stripDirty(l, k, off, 0);
+            stripDirty(l, k, (off + d) % starPeriod, 0);
             return;
         }
+        int y = stripY[l][k] + off;
+        if (y >= starPeriod) y -= starPeriod;
+        int x = stripX0[l][k], w = stripX1[l][k] - x, h = STRIP_H + d;
+        dirty.add(x, y, w, h);
+        if (y + h > starPeriod) dirty.add(x, y - starPeriod, w, h);
+    }
+
+    // игровое поле целиком; при частичной перерисовке лишнее отсекает clip
+    private void drawPlay(Graphics g) {
+        drawBackground(g);
 
         // рамка
         g.setColor(0x444444); g.drawRect(0, 0, W-1, H-1);
 
-        // астероиды
-        for (int i = 0; i < MAX_AST; i++) if (aLive[i]) {
-            if (aSprite[i] != null) aSprite[i].paint(g);
+        Snapshot s = view;
+        Entities en = s.ent;
+        int[] ex = en.x, ey = en.y;
+
+        // астероиды (по спискам типов — слои идут в прежнем порядке)
+        int[] l = en.list[Entities.T_AST];
+        for (int k = 0; k < en.count[Entities.T_AST]; k++) {
+            int i = l[k];
+            if (atlas != null) atlas.paint(g, AST_ENTRY[en.kind[i]], en.frame[i], ex[i], ey[i]);
             else {
                 g.setColor(0xBBBBBB);
-                int r = ar[i]; g.fillArc(ax[i]-r, ay[i]-r, r*2, r*2, 0, 360);
+                int r = en.r[i]; g.fillArc(ex[i]-r, ey[i]-r, r*2, r*2, 0, 360);
             }
         }
 
         // взрывы астероидов
-        for (int i = 0; i < MAX_AST; i++) if (eSprite[i] != null) eSprite[i].paint(g);
+        if (atlas != null) {
+            l = en.list[Entities.T_EXP];
+            for (int k = 0; k < en.count[Entities.T_EXP]; k++) {
+                int i = l[k];
+                atlas.paint(g, EXP_ENTRY[en.kind[i]], en.frame[i], ex[i], ey[i]);
+            }
+
+            // powerups (звезды)
+            l = en.list[Entities.T_PWR];
+            for (int k = 0; k < en.count[Entities.T_PWR]; k++) {
+                int i = l[k];
+                atlas.paint(g, Atlas.STAR, en.frame[i], ex[i], ey[i]);
+            }
+        }
 
-        // powerups (звезды)
-        for (int i = 0; i < MAX_PWR; i++) if (pLive[i] && pSprite[i] != null) pSprite[i].paint(g);
+        // частицы: по fillRect на штуку, цвет меняем только на стыке разных оттенков
+        Particles pt = s.parts;
+        if (pt.live > 0) {
+            if (profOn) prof.lap(Profiler.P_DRAW);
+            int[] life = pt.life, px = pt.x, py = pt.y;
+            int color = -1;
+            for (int i = 0; i < pt.cap; i++) {
+                if (life[i] == 0) continue;
+                int c = pt.shade(i);
+                if (c != color) { color = c; g.setColor(Particles.COLOR[c]); }
+                int sz = Particles.SIZE[pt.type[i]];
+                g.fillRect(px[i] >> SpaceGame.FX, py[i] >> SpaceGame.FX, sz, sz);
+            }
+            if (profOn) prof.lap(Profiler.P_PART);
+        }
 
         // пули
         g.setColor(0xFFFF66);
-        for (int i = 0; i < MAX_BUL; i++) if (bLive[i]) g.fillRect(bx[i]-1, by[i]-4, 2, 6);
+        l = en.list[Entities.T_BUL];
+        for (int k = 0; k < en.count[Entities.T_BUL]; k++) {
+            int i = l[k];
+            g.fillRect(ex[i]-1, ey[i]-4, 2, 6);
+        }
 
         // корабль / взрыв корабля
-        if (shipExploding) {
-            if (shipExp != null) shipExp.paint(g);
+        if (s.shipExploding) {
+            if (atlas != null) atlas.paint(g, Atlas.EXP_L, s.shipExpFrame, s.shipX, s.shipY);
         } else {
-            if (ship != null) {
-                if ((invTicks & 1) == 0) ship.paint(g); // мигаем при i-frames
+            if (atlas != null) {
+                if (!s.shipBlink)   // мигаем при i-frames
+                    atlas.paint(g, Atlas.SHIP, s.shipFrame, s.shipX, s.shipY);
             } else {
                 g.setColor(0x66FF66);
-                g.fillRect(shipX - shipW/2, shipY - shipH/2, shipW, shipH);
+                g.fillRect(s.shipX - game.shipW/2, s.shipY - game.shipH/2, game.shipW, game.shipH);
             }
         }
 
-        // HUD: счёт
+        // HUD: счёт + полоска HP — готовая картинка
+        if (hudReady) g.drawRGB(hudPix, 0, hudW, 2, 2, hudW, hudH, true);
+        if (DEBUG) {
+            g.setColor(0xFFFFFF);
+            g.drawString(fps + "/" + tps + " n" + s.narrowTests + " m" + s.maskMisses + " a" + allocTicks, W - 2, 2, Graphics.TOP | Graphics.RIGHT);
+        }
+
+        if (profOn) drawProfiler(g);
+
+        // Game Over (после взрыва корабля)
+        if (state == S_GAMEOVER) {
+            g.setColor(0xFFFFFF);
+            g.drawString(T_OVER, W/2 - wOver/2, H/2 - fontH, Graphics.TOP | Graphics.LEFT);
+            g.drawString(T_OVER_RESTART, W/2 - wOverRestart/2, H/2 + 2, Graphics.TOP | Graphics.LEFT);
+        }
+    }
+
+    // перерисовать HUD, если поменялись счёт, HP или уровень качества
+    private void updateHud() {
+        int score = view.score, hp = view.hp, hpMax = game.hpMax;
+        int q = quality();
+        if (score == hudScore && hp == hudHp && q == hudLevel) return;
+        hudScore = score; hudHp = hp; hudLevel = q;
+
+        Graphics g = hudG;
+        g.setColor(0x000000); g.fillRect(0, 0, hudW, hudH);
         g.setColor(0xFFFFFF);
-        g.drawString("Score: " + score, 2, 2, Graphics.TOP | Graphics.LEFT);
-
-        // HUD: полоска HP
-        int y0 = 2 + g.getFont().getHeight() + 2;
-        int barW = Math.min(W - 8, 84);
-        int barH = 6;
-        int x0 = 2;
-        g.setColor(0x222222); g.fillRect(x0, y0, barW, barH);
-        g.setColor(0x555555); g.drawRect(x0, y0, barW, barH);
+        int n = putInt(hudText, HUD_PREFIX, score);
+        g.drawChars(hudText, 0, n, 0, 0, Graphics.TOP | Graphics.LEFT);
+        if (q > 0) {   // для QA: текущий уровень качества
+            g.setColor(0xFF8800);
+            hudQ[1] = (char) ('0' + q);
+            g.drawChars(hudQ, 0, 2, hudW, 0, Graphics.TOP | Graphics.RIGHT);
+        }
+
+        int y0 = fontH + 2;
+        int barW = hudBarW, barH = HUD_BAR_H;
+        g.setColor(0x222222); g.fillRect(0, y0, barW, barH);
+        g.setColor(0x555555); g.drawRect(0, y0, barW, barH);
         int fillW = (hp * barW) / Math.max(1, hpMax);
         int col = (hp * 3 <= hpMax) ? 0xFF4444 : ((hp * 2 <= hpMax) ? 0xFFAA00 : 0x33CC33);
         g.setColor(col);
-        if (fillW > 2) g.fillRect(x0+1, y0+1, fillW-2, barH-2);
+        if (fillW > 2) g.fillRect(1, y0+1, fillW-2, barH-2);
 
-        // Game Over (после взрыва корабля)
-        if (state == S_GAMEOVER) {
-            String a = "GAME OVER";
-            String b = "FIRE: restart   LEFT: title";
-            int lh = g.getFont().getHeight();
-            int w1 = g.getFont().stringWidth(a);
-            int w2 = g.getFont().stringWidth(b);
-            g.drawString(a, W/2 - w1/2, H/2 - lh, Graphics.TOP | Graphics.LEFT);
-            g.drawString(b, W/2 - w2/2, H/2 + 2, Graphics.TOP | Graphics.LEFT);
+        int[] px = hudPix;
+        hudBuf.getRGB(px, 0, hudW, 0, 0, hudW, hudH);
+        for (int i = 0; i < px.length; i++)
+            px[i] = ((px[i] & 0xFFFFFF) == 0) ? 0 : (px[i] | 0xFF000000);
+        hudReady = true;
+    }
+
+    // v >= 0 в десятичном виде в buf с позиции off; возвращает конец
+    private static int putInt(char[] buf, int off, int v) {
+        int end = off;
+        for (int t = v; t >= 10; t /= 10) end++;
+        for (int i = end; i >= off; i--) { buf[i] = (char) ('0' + v % 10); v /= 10; }
+        return end + 1;
+    }
+
+    // Грязная область кадра = границы всего, что рисовали в прошлом кадре,
+    // плюс границы всего, что рисуем сейчас. Первый игровой кадр — целиком.
+    private void collectDirty() {
+        dirty.reset();
+        if (drawnState != S_PLAY) dirty.markFull();
+        drawnState = S_PLAY;
+
+        for (int i = 0; i < prevCount; i++) dirty.add(prevX[i], prevY[i], prevW[i], prevH[i]);
+        curCount = 0;
+
+        // звёзды: полосы, что сдвинулись с прошлого кадра, — старое и новое место
+        for (int l = 0; l < 3; l++) {
+            int o = drawnOff[l], n = starOff[l];
+            if (o == n) continue;
+            drawnOff[l] = n;
+            if (starLayer[l] == null || !starsShown(l)) continue;
+            int d = (n - o + starPeriod) % starPeriod;
+            for (int k = 0; k < STRIPS; k++) stripDirty(l, k, o, d);
+        }
+        SpaceGame gm = game;
+        Snapshot s = view;
+        Entities en = s.ent;
+        int[] ex = en.x, ey = en.y;
+        // по спискам типов: в снимке-копии общий список all не ведётся
+        for (int t = 0; t < Entities.TYPES; t++) {
+            int[] l = en.list[t];
+            for (int k = 0; k < en.count[t]; k++) {
+                int i = l[k], x = ex[i], y = ey[i];
+                switch (t) {
+                    case Entities.T_AST: {
+                        int r = en.r[i];
+                        bound(x - r, y - r, r*2, r*2);
+                        break;
+                    }
+                    case Entities.T_EXP: {
+                        int half = gm.astSize(en.kind[i]) / 2;
+                        bound(x - half, y - half, half*2, half*2);
+                        break;
+                    }
+                    case Entities.T_PWR:
+                        bound(x - gm.starW/2, y - gm.starH/2, gm.starW, gm.starH);
+                        break;
+                    default:
+                        bound(x - 1, y - 4, 2, 6);
+                }
+            }
         }
+        Particles pt = s.parts;
+        if (pt.live > 0) bound(pt.minX, pt.minY, pt.maxX - pt.minX, pt.maxY - pt.minY);
+        bound(s.shipX - gm.shipW/2, s.shipY - gm.shipH/2, gm.shipW, gm.shipH);
+        if (s.shipExploding) { int d = gm.astSize(2); bound(s.shipX - d/2, s.shipY - d/2, d, d); }
+
+        // HUD — только когда поменялся (картинку обновит updateHud)
+        if (s.score != hudScore || s.hp != hudHp || quality() != hudLevel) dirty.add(2, 2, hudW, hudH);
+        if (DEBUG) dirty.add(W/2, 0, W/2, fontH + 2);
+        if (profOn) bound(W - profW, H - profH, profW, profH);   // и стереть после выключения
+
+        int[] t;
+        t = prevX; prevX = curX; curX = t;
+        t = prevY; prevY = curY; curY = t;
+        t = prevW; prevW = curW; curW = t;
+        t = prevH; prevH = curH; curH = t;
+        prevCount = curCount;
+    }
+
+    private void bound(int x, int y, int w, int h) {
+        curX[curCount] = x; curY[curCount] = y; curW[curCount] = w; curH[curCount] = h;
+        curCount++;
+        dirty.add(x, y, w, h);
+    }
+
+    // ---------- оверлей профайлера ----------
+    // среднее в мс с десятыми и максимум за кольцо; строки — раз в PROF_REFRESH кадров
+    private void updateProfLines() {
+        if (++profAge < PROF_REFRESH) return;
+        profAge = 0;
+        Profiler p = prof;
+        for (int i = 0; i < Profiler.PHASES; i++)
+            profLines[i] = Profiler.NAME[i] + " " + tenths(p.avgTenths(i)) + " " + p.max(i);
+        profLines[Profiler.PHASES] = "frame " + tenths(p.frameAvgTenths()) + " " + p.frameMax() + " q" + quality();
+        profLines[Profiler.PHASES + 1] = "over " + p.overCount() + "/" + p.frames();
+        profLines[Profiler.PHASES + 2] = "free " + (p.freeLow >> 10) + "K a" + p.allocAvg() + "B";
+        profLines[Profiler.PHASES + 3] = "part " + view.parts.live + "/" + view.parts.limit
+                + " " + tenths(p.per100Tenths(Profiler.P_PART)) + "/100";
+        profLines[Profiler.PHASES + 4] = "fps " + fps + " tps " + tps;
+        profLines[Profiler.PHASES + 5] = (sim == null) ? "alloc t" + allocTicks + " f" + allocFrames : "alloc -";
+    }
 
+    private static String tenths(int t) { return (t / 10) + "." + (t % 10); }
 
-        flushGraphics();
+    private void drawProfiler(Graphics g) {
+        int x = W - profW, y = H - profH;
+        g.setColor(0x000000); g.fillRect(x, y, profW, profH);
+        g.setColor(0x00FF00);
+        g.setFont(profFont);
+        int lh = profFont.getHeight();
+        for (int i = 0; i < profLines.length; i++) {
+            if (profLines[i] != null) g.drawString(profLines[i], x + 2, y + 2 + i * lh, Graphics.TOP | Graphics.LEFT);
+        }
+        g.setFont(font);
     }
 
     // ===== экраны =====
@@ -757,13 +1288,18 @@ public class SpaceCanvas extends GameCanvas implements Runnable {
         } else {
             // запасной вариант: текст
             g.setColor(0xFFD24A);
-            String t = "SPACE ASTEROIDS";
-            int w = g.getFont().stringWidth(t);
-            g.drawString(t, W/2 - w/2, H/3, Graphics.TOP | Graphics.LEFT);
-            g.setColor(0xAAAAAA);
-            String s = "FIRE to continue";
-            int w2 = g.getFont().stringWidth(s);
-            g.drawString(s, W/2 - w2/2, H - g.getFont().getHeight() - 6, Graphics.TOP | Graphics.LEFT);
+            g.drawString(T_NAME, W/2 - wName/2, H/3, Graphics.TOP | Graphics.LEFT);
+            if (assetsReady()) {
+                g.setColor(0xAAAAAA);
+                g.drawString(T_CONTINUE, W/2 - wContinue/2, H - fontH - 6, Graphics.TOP | Graphics.LEFT);
+            }
+        }
+
+        // полоска загрузки
+        if (!assetsReady()) {
+            int bw = W * 2 / 3, bx = (W - bw) / 2, by = H - 12;
+            g.setColor(0x555555); g.drawRect(bx, by, bw, 5);
+            g.setColor(0xFFD24A); g.fillRect(bx + 1, by + 1, (bw - 1) * loaded / LOAD_STEPS, 4);
         }
     }
 
@@ -773,51 +1309,71 @@ public class SpaceCanvas extends GameCanvas implements Runnable {
             g.drawImage(titleLogo, W/2, H/3, Graphics.HCENTER | Graphics.VCENTER);
         } else {
             g.setColor(0xFFD24A);
-            String t = "SPACE ASTEROIDS";
-            int w = g.getFont().stringWidth(t);
-            g.drawString(t, W/2 - w/2, H/3 - g.getFont().getHeight()/2, Graphics.TOP | Graphics.LEFT);
+            g.drawString(T_NAME, W/2 - wName/2, H/3 - fontH/2, Graphics.TOP | Graphics.LEFT);
         }
 
         // меню
-        String[] items = {"START", "ABOUT"};
         int y0 = H/2 + 10;
-        for (int i = 0; i < items.length; i++) {
+        for (int i = 0; i < MENU.length; i++) {
             boolean sel = (i == menuSel);
-            g.setColor(sel ? 0xFFFFFF : 0xAAAAAA);
-            int w = g.getFont().stringWidth(items[i]);
-            g.drawString(items[i], W/2 - w/2, y0 + i*(g.getFont().getHeight()+4), Graphics.TOP | Graphics.LEFT);
+            g.setColor((i == 1 && !hasReplay) ? 0x555555 : (sel ? 0xFFFFFF : 0xAAAAAA));
+            int w = menuW[i];
+            int y = y0 + i*(fontH+4);
+            g.drawString(MENU[i], W/2 - w/2, y, Graphics.TOP | Graphics.LEFT);
             if (sel) {
                 // ▸ маркер
-                g.fillTriangle(W/2 - w/2 - 10, y0 + i*(g.getFont().getHeight()+4) + 5,
-                        W/2 - w/2 - 4,  y0 + i*(g.getFont().getHeight()+4) + 9,
-                        W/2 - w/2 - 10, y0 + i*(g.getFont().getHeight()+4) + 13);
+                g.fillTriangle(W/2 - w/2 - 10, y + 5,
+                        W/2 - w/2 - 4,  y + 9,
+                        W/2 - w/2 - 10, y + 13);
             }
         }
 
+        if (bestLine != null) {
+            g.setColor(0x808080);
+            g.drawString(bestLine, W/2, 4, Graphics.TOP | Graphics.HCENTER);
+        }
+
         // подсказка
-        if (((titleBlink++/20) & 1) == 0) {
+        if (blinkOn) {
             g.setColor(0x808080);
-            String tip = "FIRE to select";
-            int w = g.getFont().stringWidth(tip);
-            g.drawString(tip, W/2 - w/2, H - g.getFont().getHeight() - 4, Graphics.TOP | Graphics.LEFT);
+            g.drawString(T_SELECT, W/2 - wSelect/2, H - fontH - 4, Graphics.TOP | Graphics.LEFT);
         }
     }
 
     private void drawAbout(Graphics g) {
         g.setColor(0xFFFFFF);
         int y = H/4;
-        String a1 = "SPACE ASTEROIDS";
-        String a2 = "by openm1ke";
-        String a3 = "2025  v1.0";
-        String a4 = "FIRE: back";
+        g.drawString(T_NAME, W/2 - wName/2, y, Graphics.TOP | Graphics.LEFT); y += fontH+6;
+        g.drawString(T_BY, 8, y, Graphics.TOP | Graphics.LEFT); y += fontH+2;
+        g.drawString(T_VER, 8, y, Graphics.TOP | Graphics.LEFT); y += fontH+2;
+        g.setColor(0x808080);
+        g.drawString(spriteInfo, 8, y, Graphics.TOP | Graphics.LEFT);
 
-        int w1 = g.getFont().stringWidth(a1);
-        g.drawString(a1, W/2 - w1/2, y, Graphics.TOP | Graphics.LEFT); y += g.getFont().getHeight()+6;
-        g.drawString(a2, 8, y, Graphics.TOP | Graphics.LEFT); y += g.getFont().getHeight()+2;
-        g.drawString(a3, 8, y, Graphics.TOP | Graphics.LEFT); y += g.getFont().getHeight()+12;
+        g.setColor(0xAAAAAA);
+        g.drawString(T_BACK, W/2 - wBack/2, H - fontH - 4, Graphics.TOP | Graphics.LEFT);
+    }
 
-        int w4 = g.getFont().stringWidth(a4);
+    private void drawStats(Graphics g) {
+        g.setColor(0xFFD24A);
+        g.drawString(statHead, 8, 8, Graphics.TOP | Graphics.LEFT);
+        g.setColor(0xFFFFFF);
+        int y = 8 + fontH + 4;
+        for (int i = 0; statLines != null && i < statLines.length; i++) {
+            g.drawString(statLines[i], 8, y, Graphics.TOP | Graphics.LEFT);
+            y += fontH + 2;
+        }
+        g.setColor(0xAAAAAA);
+        g.drawString(T_STATS_KEYS, 8, H - fontH - 4, Graphics.TOP | Graphics.LEFT);
+    }
+
+    private void drawReport(Graphics g) {
+        g.setColor(0xFFFFFF);
+        int y = 8;
+        for (int i = 0; report != null && i < report.length; i++) {
+            g.drawString(report[i], 8, y, Graphics.TOP | Graphics.LEFT);
+            y += fontH + 2;
+        }
         g.setColor(0xAAAAAA);
-        g.drawString(a4, W/2 - w4/2, H - g.getFont().getHeight() - 4, Graphics.TOP | Graphics.LEFT);
+        g.drawString(T_BACK, W/2 - wBack/2, H - fontH - 4, Graphics.TOP | Graphics.LEFT);
     }
 }
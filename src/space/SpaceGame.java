@@ -0,0 +1,589 @@
+package space;
+
+/**
+ * Игровая симуляция Space Asteroids без lcdui.
+ * - Астероиды S/M/L, распад L→2×M, M→2×S, взрывы
+ * - Пули, падающие «звёзды»-хилки, корабль с HP и i-frames
+ * - Свой LCG: при одинаковом seed и одинаковых клавишах игра повторяется тик в тик
+ *
+ * Все сущности, кроме корабля, лежат в одном хранилище Entities (структура
+ * массивов с тегом типа): движение и анимация — один проход по всем живым,
+ * по типам идут только коллизии. Физика — в фиксированной точке 16.16
+ * (только int), пиксельные x/y получаются сдвигом после шага.
+ *
+ * Коллизии пуль и астероидов с кораблём — по отрезку пути за тик (swept),
+ * поэтому шаг можно делать крупнее: setTickMs() пересчитывает скорости и
+ * таймеры, заданные для BASE_MS, и при 15 Гц пули не пролетают сквозь мелочь.
+ *
+ * Управление — битовая маска клавиш на тик в тех же битах, что
+ * GameCanvas.getKeyStates(), поэтому ядро одинаково крутится в MIDlet'е
+ * и на обычной JVM без экрана. SpaceCanvas только читает состояние и рисует.
+ */
+final class SpaceGame {
+
+    // клавиши: значения GameCanvas.*_PRESSED
+    static final int K_UP = 1 << 1, K_LEFT = 1 << 2, K_RIGHT = 1 << 5, K_DOWN = 1 << 6, K_FIRE = 1 << 8;
+
+    // ---------- размеры и кадры ----------
+    // STAR_*, SHIP_* и 16/24/32 у астероидов — размеры рисунков для клетки BASE_CELL
+    // (экран 240 px). Спрайты масштабируются под cell при загрузке (Atlas.scale),
+    // а игра берёт размеры и радиусы коллизий из тех же scaled()
+    static final int AST_FRAMES = 12, EXP_FRAMES = 10, STAR_FRAMES = 11;
+    static final int STAR_W = 16, STAR_H = 16;
+    static final int SHIP_W = 31, SHIP_H = 48;
+    static final int[] SHIP_SEQ = {0, 1, 2, 1};
+    static final int BASE_CELL = 10;
+
+    final int shipW, shipH, starW, starH;
+    private final int[] astD = new int[3];   // диаметр астероида по kind
+    private final int astRMax;               // радиус самого большого астероида
+    private final int starR;                 // радиус подбора звезды
+
+    // фиксированная точка 16.16
+    static final int FX = 16, ONE = 1 << FX;
+
+    // ---------- шаг симуляции ----------
+    // скорости и таймеры ниже заданы для шага BASE_MS (25 Гц) и пересчитываются в setTickMs()
+    static final int BASE_MS = 40, MIN_MS = 20, MAX_MS = 100;
+    int tickMs = BASE_MS;
+    private int spawnEvery, shootDelay, shipAnimDelay, expDelay;
+    private int bulletVy, starVy;
+    private int reach;                // запас поиска в сетке: радиус + путь астероида за тик
+
+    // ---------- поле ----------
+    final int W, H;
+    private final int cols = 24;
+    final int cell;
+    private final int groundY;
+
+    // ---------- астероиды, взрывы, звёзды, пули ----------
+    final Entities ent;
+
+    // обломки и выхлоп; на ход игры не влияют (свой LCG)
+    static final int PARTICLES = 256;
+    final Particles parts = new Particles(PARTICLES);
+
+    // broadphase: сетка по центрам астероидов, ячейка = 4 клетки поля
+    private final SpatialGrid grid;
+    int narrowTests = 0;              // точных проверок за последний тик
+    int maskMisses = 0;               // касаний, отменённых масками, с начала партии
+
+    // маски непрозрачных пикселей из спрайтов: [kind][кадр] и [кадр корабля];
+    // null — спрайтов нет (headless), коллизии только по геометрии
+    private PixelMask[][] astMask;
+    private PixelMask[] shipMask;
+    Profiler prof;                    // не null — замеряем фазы тика
+
+    private int shootCooldown = 0;
+    private int keysPrev = 0;
+
+    // ---------- корабль ----------
+    int shipX, shipY;
+    int shipSeq = 0;                  // индекс в SHIP_SEQ
+    int shipOX;                       // shipX до ввода этого тика
+    private int shipSpeed;
+    private int shipAnimTick = 0;
+
+    // взрыв корабля
+    boolean shipExploding = false;
+    int shipExpFrame = 0;
+    private int shipExpTick = 0;
+    private int shipExpDelay;
+
+    // ---------- HP / урон ----------
+    final int hpMax = 8;
+    int hp = hpMax;
+    int invTicks = 0;                    // i-frames
+    private int invDuration;             // ~1 сек
+
+    // ---------- игра ----------
+    int score = 0;
+    boolean gameOver = false;
+    private int spawnCounter = 0;
+
+    // ---------- LCG ----------
+    // rnd(), updateEntities(), explodeAsteroid(), spawnChildAsteroid() и bulletHit()
+    // пакетные, чтобы до них дотягивались бенчмарки из bench/
+    private int seed = 123456789;
+    int rnd() { seed = (seed * 1103515245 + 12345) & 0x7fffffff; return seed; }
+    private int rndRange(int n) { if (n <= 0) return 0; int r = rnd() % n; return (r < 0) ? -r : r; }
+
+    SpaceGame(int w, int h, int maxAst, int maxBul, int maxPwr) {
+        W = w; H = h;
+        cell = Math.max(4, W / cols);
+        groundY = H - cell * 2;
+
+        shipW = scaled(SHIP_W, cell); shipH = scaled(SHIP_H, cell);
+        starW = scaled(STAR_W, cell); starH = scaled(STAR_H, cell);
+        for (int k = 0; k < 3; k++) astD[k] = scaled(16 + 8 * k, cell);   // 16/24/32
+        astRMax = astD[2] / 2;
+        starR = scaled(7, cell);
+
+        ent = new Entities(maxAst, maxAst, maxPwr, maxBul);
+        grid = new SpatialGrid(W, H, Math.max(cell * 4, astRMax * 2), ent.capacity());
+
+        setTickMs(BASE_MS);
+        reset();
+    }
+
+    /** Шаг симуляции в мс (MIN_MS..MAX_MS); вызывать между партиями — потом reset(). */
+    void setTickMs(int ms) {
+        tickMs = (ms < MIN_MS) ? MIN_MS : (ms > MAX_MS ? MAX_MS : ms);
+        shipSpeed = perTick(Math.max(2, cell / 3));
+        bulletVy = -perTick(cell << FX);
+        starVy = perTick(Math.max(ONE, (cell << FX) / 3));   // медленно падает
+        spawnEvery = ticks(6);
+        shootDelay = ticks(6);
+        shipAnimDelay = ticks(5);
+        expDelay = ticks(2);                                  // взрыв медленнее: кадр раз в 2 базовых тика
+        invDuration = ticks(25);
+        // астероид за тик проходит не больше cell по y и cell/4 по x (до пересчёта)
+        reach = astRMax + perTick(cell + cell / 4) + 1;
+    }
+
+    // скорость за базовый тик → за наш (пиксели или 16.16)
+    private int perTick(int v) { return v * tickMs / BASE_MS; }
+    // длительность в базовых тиках → в наших, не меньше 1
+    private int ticks(int n) { int t = (n * BASE_MS + tickMs / 2) / tickMs; return (t < 1) ? 1 : t; }
+
+    /** Размер рисунка px (для клетки BASE_CELL) на поле с клеткой cell, ближайшее целое. */
+    static int scaled(int px, int cell) { return Math.max(1, (px * cell + BASE_CELL / 2) / BASE_CELL); }
+
+    int astSize(int kind) { return astD[kind]; }
+
+    /** Маски кадров; размеры должны совпадать с astSize()/shipW×shipH. */
+    void setMasks(PixelMask[][] ast, PixelMask[] ship) { astMask = ast; shipMask = ship; }
+
+    int seed() { return seed; }
+    void setSeed(int s) { seed = s; }
+
+    /** Новая партия. Клавиши, зажатые в момент старта, не считаются нажатием. */
+    void reset() {
+        ent.clear();
+        parts.clear();
+        grid.clear();
+
+        // корабль
+        shipExploding = false;
+        shipX = shipOX = W / 2;
+        shipY = groundY - shipH/2 - 2;
+        shipSeq = 0;
+
+        score = 0; gameOver = false; maskMisses = 0;
+        spawnCounter = 0; shootCooldown = ticks(8);
+        shipAnimTick = 0;
+        keysPrev = -1;
+
+        hp = hpMax;
+        invTicks = 0;
+    }
+
+    /** Один тик игры; keys — маска зажатых клавиш. */
+    void tick(int keys) {
+        Profiler p = prof;
+        if (p == null) {
+            input(keys);
+            spawnAsteroids();
+            updateEntities();
+            updateShip();
+            parts.update();
+            checkCollisions();
+            return;
+        }
+        input(keys);        p.lap(Profiler.P_INPUT);
+        spawnAsteroids();   p.lap(Profiler.P_SPAWN);
+        updateEntities();   p.lap(Profiler.P_ENT);
+        updateShip();       p.lap(Profiler.P_SHIP);
+        parts.update();     p.units(parts.live); p.lap(Profiler.P_PART);
+        checkCollisions();  p.lap(Profiler.P_COLL);
+    }
+
+    // ---------- ввод ----------
+    private void input(int ks) {
+        int press = ks & ~keysPrev;   // новые нажатия
+        keysPrev = ks;
+        shipOX = shipX;
+
+        if (shipExploding || gameOver) return; // ждём окончания взрыва
+
+        if ((ks & K_LEFT)  != 0) shipX -= shipSpeed;
+        if ((ks & K_RIGHT) != 0) shipX += shipSpeed;
+
+        if (shipX < shipW/2) shipX = shipW/2;
+        if (shipX > W - shipW/2) shipX = W - shipW/2;
+
+        if (shootCooldown > 0) shootCooldown--;
+        if ((press & K_FIRE) != 0 && shootCooldown == 0) {
+            fireBullet();
+            shootCooldown = shootDelay;
+        }
+    }
+
+    private void fireBullet() {
+        Entities en = ent;
+        int i = en.alloc(Entities.T_BUL);
+        if (i < 0) return;
+        en.place(i, shipX, shipY - shipH/2 - 2);
+        en.vx[i] = 0;
+        en.vy[i] = bulletVy;
+        en.r[i] = 0;
+        en.anim(i, 0, 1, 0, 0);
+    }
+
+    // ---------- спавн астероидов ----------
+    private void spawnAsteroids() {
+        if (gameOver) return;
+        if (++spawnCounter < spawnEvery) return; // частота спавна
+        spawnCounter = 0;
+        if ((rnd() & 1) == 0) return;   // шанс 1/2
+
+        Entities en = ent;
+        int slot = en.alloc(Entities.T_AST);
+        if (slot < 0) return;
+
+        int kind = rnd() % 3; if (kind < 0) kind = -kind;
+        en.kind[slot] = kind;
+        int frame = rndRange(AST_FRAMES);
+
+        int span = W - 2*cell; if (span < 1) span = 1;
+        int x = cell + rndRange(span);
+        int y = -(5 + rndRange(60));
+        en.place(slot, x, y);
+        int r = astSize(kind)/2;
+        en.r[slot] = r;
+
+        // вертикальная скорость помедленнее (~−33%)
+        en.vy[slot] = perTick(Math.max(ONE, (slownessByRadius(r) * 2) / 3));
+
+        // лёгкий горизонтальный дрейф
+        en.vx[slot] = perTick((rndRange(Math.max(1, cell/3 + 1)) << FX) - (cell << FX) / 6);
+
+        // вращение медленнее: 4..7 базовых тиков/кадр
+        en.anim(slot, frame, AST_FRAMES, ticks(4 + rndRange(4)), Entities.F_LOOP);
+        grid.insert(slot, x, y);
+    }
+
+    // 2·cell / (r/cell) в 16.16, r/cell не меньше 1; от 1 px/тик до cell px/тик
+    private int slownessByRadius(int r) {
+        int cellSafe = Math.max(1, cell);
+        int v = (r <= cellSafe) ? (cellSafe * 2) << FX            // чуть медленнее базово (2 вместо 3)
+                                : ((cellSafe * cellSafe * 2) << FX) / r;
+        if (v < ONE) v = ONE;
+        if (v > cellSafe << FX) v = cellSafe << FX;
+        return v;
+    }
+
+    // ---------- движение и анимация: один проход по всем сущностям ----------
+    void updateEntities() {
+        Entities en = ent;
+        int[] dense = en.all.dense;
+        int wf = W << FX;
+        for (int k = en.all.count - 1; k >= 0; k--) {
+            int i = dense[k];
+            int t = en.type[i];
+            en.ox[i] = en.x[i]; en.oy[i] = en.y[i];
+
+            int fx = en.fx[i] + en.vx[i];
+            int fy = en.fy[i] + en.vy[i];
+            if (t == Entities.T_AST) {   // отскок от стен
+                int rf = en.r[i] << FX;
+                if (fx < rf) { fx = rf; en.vx[i] = -en.vx[i]; }
+                if (fx > wf - rf) { fx = wf - rf; en.vx[i] = -en.vx[i]; }
+            }
+            en.fx[i] = fx; en.fy[i] = fy;
+            int y = fy >> FX;
+            en.x[i] = fx >> FX; en.y[i] = y;
+
+            if (en.animDelay[i] > 0 && ++en.animTick[i] >= en.animDelay[i]) {
+                en.animTick[i] = 0;
+                if (++en.frame[i] >= en.frames[i]) {
+                    if ((en.flags[i] & Entities.F_LOOP) == 0) { en.release(i); continue; }   // взрыв доиграл
+                    en.frame[i] = 0;
+                }
+            }
+
+            // ушедшие за экран
+            if (t == Entities.T_BUL) {
+                if (y < -6) en.release(i);
+            } else if (y - en.r[i] > H) {
+                if (t == Entities.T_AST) grid.remove(i);
+                en.release(i);
+            } else if (t == Entities.T_AST) {
+                grid.move(i, en.x[i], y);
+            }
+        }
+    }
+
+    // ---------- корабль: анимация, взрыв, неуязвимость ----------
+    private void updateShip() {
+        // анимация корабля (если не взрывается)
+        if (!shipExploding && !gameOver) {
+            if (++shipAnimTick >= shipAnimDelay) {
+                shipAnimTick = 0;
+                if (++shipSeq >= SHIP_SEQ.length) shipSeq = 0;
+            }
+            // выхлоп: частица из сопла вниз с небольшим разбросом
+            parts.burst(Particles.T_EXHAUST, 1, shipX, shipY + shipH/2, 0, perTick((cell << FX) / 3),
+                    ONE / 3, ticks(4));
+        }
+
+        // тики взрыва корабля
+        if (shipExploding) {
+            if (++shipExpTick >= shipExpDelay) {
+                shipExpTick = 0;
+                if (++shipExpFrame >= EXP_FRAMES) {
+                    shipExploding = false;
+                    gameOver = true;
+                }
+            }
+        }
+
+        // тик неуязвимости
+        if (invTicks > 0) invTicks--;
+    }
+
+    // запуск взрыва астероида + шанс дропа звезды
+    void explodeAsteroid(int idx) {
+        Entities en = ent;
+        // слот освобождается сразу и может достаться осколку — копируем поля
+        int x = en.x[idx], r = en.r[idx], k = en.kind[idx];
+        int fx = en.fx[idx], fy = en.fy[idx];
+
+        // обломки летят с половиной скорости астероида
+        parts.burst(Particles.T_DEBRIS, 4 + 4 * k, x, en.y[idx], en.vx[idx] / 2, en.vy[idx] / 2,
+                perTick((cell << FX) / 4), ticks(8));
+
+        int e = en.alloc(Entities.T_EXP);
+        if (e >= 0) {
+            en.kind[e] = k;
+            en.placeFx(e, fx, fy);
+            en.vx[e] = 0; en.vy[e] = 0;
+            en.r[e] = astSize(k)/2;
+            en.anim(e, 0, EXP_FRAMES, expDelay, 0);
+        }
+
+        // отключаем сам астероид
+        grid.remove(idx);
+        en.release(idx);
+
+        // распад (скорость осколков — уже за наш тик)
+        if (k == 2) { // large -> 2 medium
+            int off = (r << FX) / 2, vx = perTick(Math.max(ONE, (cell << FX) / 4));
+            spawnChildAsteroid(fx - off, fy, 1, -vx);
+            spawnChildAsteroid(fx + off, fy, 1,  vx);
+        } else if (k == 1) { // medium -> 2 small
+            int off = (r << FX) / 3, vx = perTick(Math.max(ONE, (cell << FX) / 5));
+            spawnChildAsteroid(fx - off, fy, 0, -vx);
+            spawnChildAsteroid(fx + off, fy, 0,  vx);
+        }
+
+        // шанс 1/5 уронить «звезду»-хилку
+        if ((rnd() % 5) == 0) dropStarAt(x, fy);
+    }
+
+    // взрыв корабля
+    private void explodeShip() {
+        shipExploding = true;
+        invTicks = 0;
+        shipExpFrame = 0;
+        shipExpTick = 0;
+        shipExpDelay = expDelay;
+        parts.burst(Particles.T_SPARK, 40, shipX, shipY, 0, 0, perTick((cell << FX) / 2), ticks(12));
+    }
+
+    // позиция и скорость — 16.16, vx уже за наш тик
+    int spawnChildAsteroid(int fx, int fy, int kind, int vx) {
+        Entities en = ent;
+        int slot = en.alloc(Entities.T_AST);
+        if (slot < 0) return -1;
+
+        int frame = rndRange(AST_FRAMES);
+        en.kind[slot] = kind;
+        en.placeFx(slot, fx, fy);
+        int r = astSize(kind)/2;
+        en.r[slot] = r;
+        en.vx[slot] = vx;
+        en.vy[slot] = perTick(slownessByRadius(r));
+        en.anim(slot, frame, AST_FRAMES, ticks(4 + rndRange(4)), Entities.F_LOOP);
+        grid.insert(slot, en.x[slot], en.y[slot]);
+        return slot;
+    }
+
+    // ---------- powerups ----------
+    // x — пиксели, fy — 16.16
+    private void dropStarAt(int x, int fy) {
+        Entities en = ent;
+        int slot = en.alloc(Entities.T_PWR);
+        if (slot < 0) return;
+
+        int frame = rndRange(STAR_FRAMES);
+        en.placeFx(slot, x << FX, fy);
+        en.r[slot] = starR;
+        en.vx[slot] = 0;
+        en.vy[slot] = starVy;
+        en.anim(slot, frame, STAR_FRAMES, ticks(5 + rndRange(3)), Entities.F_LOOP);   // 5..7 базовых тиков/кадр
+    }
+
+    private int damageByKind(int kind) {
+        switch (kind) {
+            case 0: return 1; // small
+            case 1: return 2; // medium
+            default: return 3; // large
+        }
+    }
+
+    // ---------- коллизии ----------
+    private void checkCollisions() {
+        narrowTests = 0;
+        if (shipExploding || gameOver) return;
+        Entities en = ent;
+
+        // пули ↔ астероиды: путь пули за тик против ячеек рядом с ним
+        int[] bul = en.list[Entities.T_BUL];
+        for (int kb = en.count[Entities.T_BUL] - 1; kb >= 0; kb--) {
+            int b = bul[kb];
+            int a = bulletHit(en.ox[b], en.oy[b], en.x[b], en.y[b]);
+            if (a >= 0) {
+                en.release(b);
+                score += 10;
+                explodeAsteroid(a);
+            }
+        }
+
+        // прямоугольник корабля
+        int rx = shipX - shipW/2, ry = shipY - shipH/2;
+
+        // подбор звезды → лечим (звёзд единицы — без сетки)
+        int[] pwr = en.list[Entities.T_PWR];
+        for (int k = en.count[Entities.T_PWR] - 1; k >= 0; k--) {
+            int i = pwr[k];
+            narrowTests++;
+            if (circleIntersectsRect(en.x[i], en.y[i], en.r[i], rx, ry, shipW, shipH)) {
+                hp = Math.min(hpMax, hp + 2);   // +2 HP
+                en.release(i);
+            }
+        }
+
+        // астероид ↔ корабль: путь центра астероида относительно корабля против
+        // прямоугольника, раздутого на радиус; prx — левый край корабля тиком раньше
+        int prx = shipOX - shipW/2;
+        int m = reach + Math.abs(shipX - shipOX);
+        int cx0 = grid.cellX(rx - m), cx1 = grid.cellX(rx + shipW + m);
+        int cy0 = grid.cellY(ry - m), cy1 = grid.cellY(ry + shipH + m);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int a = grid.head(cx, cy);
+                while (a >= 0) {
+                    int n = grid.next(a);   // explodeAsteroid вынет a из списка
+                    narrowTests++;
+                    if (sweepCircleRect(en.ox[a] - prx, en.oy[a] - ry, en.x[a] - rx, en.y[a] - ry,
+                                        en.r[a], shipW, shipH) && pixelHit(a, prx, rx, ry)) {
+
+                        if (invTicks == 0) {
+                            hp -= damageByKind(en.kind[a]);
+                            if (hp <= 0) { explodeShip(); return; }
+                            invTicks = invDuration;
+                        }
+
+                        // астероид взрываем/раскалываем
+                        explodeAsteroid(a);
+                    }
+                    a = n;
+                }
+            }
+        }
+    }
+
+    // после геометрии: есть ли общий непрозрачный пиксель у текущих кадров астероида и
+    // корабля. Маски решают и урон, и взрыв астероида (в i-frames урона нет, но сносит
+    // корабль тоже только то, чего коснулся пикселями). Если в конце тика прямоугольники
+    // не касаются, а в начале касались — астероид уходит, и маски его прошлого положения
+    // уже проверены прошлым тиком. Пути верим только, если он не касался ни в начале, ни
+    // в конце: проскочил насквозь за тик
+    private boolean pixelHit(int a, int prx, int rx, int ry) {
+        if (shipMask == null) return true;
+        Entities en = ent;
+        int x = en.x[a], y = en.y[a];
+        if (!circleIntersectsRect(x, y, en.r[a], rx, ry, shipW, shipH)) {
+            if (!circleIntersectsRect(en.ox[a], en.oy[a], en.r[a], prx, ry, shipW, shipH)) return true;
+            maskMisses++;
+            return false;
+        }
+        PixelMask am = astMask[en.kind[a]][en.frame[a]], sm = shipMask[SHIP_SEQ[shipSeq]];
+        if (PixelMask.overlap(am, x - am.w/2, y - am.h/2, sm, shipX - sm.w/2, shipY - sm.h/2)) return true;
+        maskMisses++;
+        return false;
+    }
+
+    // астероид, которого пуля на пути (x0, y0)→(x1, y1) коснулась раньше всех, или -1.
+    // Астероид за тот же тик тоже сдвинулся, поэтому путь берём относительно него
+    int bulletHit(int x0, int y0, int x1, int y1) {
+        Entities en = ent;
+        int cx0 = grid.cellX(Math.min(x0, x1) - reach), cx1 = grid.cellX(Math.max(x0, x1) + reach);
+        int cy0 = grid.cellY(Math.min(y0, y1) - reach), cy1 = grid.cellY(Math.max(y0, y1) + reach);
+        int best = -1, bestT = ONE + 1;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int a = grid.head(cx, cy); a >= 0; a = grid.next(a)) {
+                    narrowTests++;
+                    int t = sweepCircle(x0 - en.ox[a], y0 - en.oy[a], x1 - en.x[a], y1 - en.y[a], en.r[a]);
+                    if (t >= 0 && t < bestT) { bestT = t; best = a; }
+                }
+            }
+        }
+        return best;
+    }
+
+    // отрезок (x0, y0)→(x1, y1) против круга радиуса r в начале координат:
+    // доля пути (16.16) до ближайшей к центру точки или -1 — не задел
+    static int sweepCircle(int x0, int y0, int x1, int y1, int r) {
+        int dx = x1 - x0, dy = y1 - y0;
+        long rr = (long) r * r;
+        long dd = (long) dx * dx + (long) dy * dy;
+        long pd = -((long) x0 * dx + (long) y0 * dy);     // проекция центра на путь × |d|
+        if (dd == 0 || pd <= 0) return ((long) x0 * x0 + (long) y0 * y0 <= rr) ? 0 : -1;
+        if (pd >= dd) return ((long) x1 * x1 + (long) y1 * y1 <= rr) ? ONE : -1;
+        long cr = (long) x0 * dy - (long) y0 * dx;        // расстояние до прямой × |d|
+        return (cr * cr <= rr * dd) ? (int) ((pd << FX) / dd) : -1;
+    }
+
+    // путь центра круга радиуса r против прямоугольника (0, 0, w, h): прямоугольник,
+    // раздутый на r, со скруглёнными углами = два «креста» + четыре круга в углах
+    private static boolean sweepCircleRect(int x0, int y0, int x1, int y1, int r, int w, int h) {
+        return segHitsBox(x0, y0, x1, y1, -r, 0, w + r, h)
+            || segHitsBox(x0, y0, x1, y1, 0, -r, w, h + r)
+            || sweepCircle(x0, y0, x1, y1, r) >= 0
+            || sweepCircle(x0 - w, y0, x1 - w, y1, r) >= 0
+            || sweepCircle(x0, y0 - h, x1, y1 - h, r) >= 0
+            || sweepCircle(x0 - w, y0 - h, x1 - w, y1 - h, r) >= 0;
+    }
+
+    // отрезок против прямоугольника [l, rt]×[t, b]: отсечение параметра пути по осям (16.16)
+    private static boolean segHitsBox(int x0, int y0, int x1, int y1, int l, int t, int rt, int b) {
+        int lo = 0, hi = ONE;
+        int d = x1 - x0;
+        if (d == 0) {
+            if (x0 < l || x0 > rt) return false;
+        } else {
+            int ta = ((l - x0) << FX) / d, tb = ((rt - x0) << FX) / d;
+            if (ta > tb) { int s = ta; ta = tb; tb = s; }
+            if (ta > lo) lo = ta;
+            if (tb < hi) hi = tb;
+            if (lo > hi) return false;
+        }
+        d = y1 - y0;
+        if (d == 0) return y0 >= t && y0 <= b;
+        int ta = ((t - y0) << FX) / d, tb = ((b - y0) << FX) / d;
+        if (ta > tb) { int s = ta; ta = tb; tb = s; }
+        if (ta > lo) lo = ta;
+        if (tb < hi) hi = tb;
+        return lo <= hi;
+    }
+
+    private boolean circleIntersectsRect(int cx, int cy, int r, int rx, int ry, int rw, int rh) {
+        int nx = (cx < rx) ? rx : (cx > rx+rw ? rx+rw : cx);
+        int ny = (cy < ry) ? ry : (cy > ry+rh ? ry+rh : cy);
+        int dx = cx - nx, dy = cy - ny;
+        return dx*dx + dy*dy <= r*r;
+    }
+}
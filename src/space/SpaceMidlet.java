@@ -12,6 +12,20 @@ public class SpaceMidlet extends MIDlet implements CommandListener {
         if (display == null) {
             display = Display.getDisplay(this);
             canvas = new SpaceCanvas();
+            // Sprite-Backend: atlas (drawRegion, по умолчанию) или sliced (кадр = своя картинка)
+            canvas.setSlicedSprites("sliced".equals(getAppProperty("Sprite-Backend")));
+            // Tick-Rate: частота симуляции в Гц, 25 по умолчанию; 15 — экономия CPU на слабых телефонах
+            String rate = getAppProperty("Tick-Rate");
+            if (rate != null) {
+                try { canvas.setTickRate(Integer.parseInt(rate.trim())); } catch (NumberFormatException ignored) {}
+            }
+            // Particle-Budget: сколько частиц одновременно (обломки, выхлоп), 0 — без частиц
+            String parts = getAppProperty("Particle-Budget");
+            if (parts != null) {
+                try { canvas.setParticleBudget(Integer.parseInt(parts.trim())); } catch (NumberFormatException ignored) {}
+            }
+            // Sim-Thread: on — тики партии в своём потоке, кадры рисуются по снимкам (многоядерные устройства)
+            canvas.setSimThread("on".equals(getAppProperty("Sim-Thread")));
             canvas.addCommand(EXIT);
             canvas.setCommandListener(this);
         }
@@ -23,6 +37,9 @@ public class SpaceMidlet extends MIDlet implements CommandListener {
     protected void destroyApp(boolean unconditional) { if (canvas != null) canvas.stop(); }
 
     public void commandAction(Command c, Displayable d) {
-        if (c == EXIT) notifyDestroyed();
+        if (c == EXIT) {
+            destroyApp(true);   // дописать очередь RMS и остановить потоки
+            notifyDestroyed();
+        }
     }
 }
@@ -0,0 +1,78 @@
+package space;
+
+/**
+ * Равномерная сетка для broadphase: каждый объект лежит в ячейке своего центра,
+ * ячейки — двусвязные списки по номерам слотов (без аллокаций).
+ * Координаты за краями экрана прижимаются к крайним ячейкам.
+ *
+ * Запрос: перебрать ячейки cellX(x0)..cellX(x1) × cellY(y0)..cellY(y1),
+ * где прямоугольник уже расширен на максимальный радиус объектов.
+ */
+final class SpatialGrid {
+
+    final int size, cols, rows;
+    private final int[] head;          // первый слот ячейки, -1 = пусто
+    private final int[] next, prev;    // списки по слотам
+    private final int[] cellOf;        // ячейка слота, -1 = не в сетке
+
+    SpatialGrid(int w, int h, int size, int capacity) {
+        this.size = size;
+        cols = Math.max(1, (w + size - 1) / size);
+        rows = Math.max(1, (h + size - 1) / size);
+        head = new int[cols * rows];
+        next = new int[capacity];
+        prev = new int[capacity];
+        cellOf = new int[capacity];
+        clear();
+    }
+
+    int cellX(int x) {
+        int c = (x < 0) ? 0 : x / size;
+        return (c >= cols) ? cols - 1 : c;
+    }
+
+    int cellY(int y) {
+        int c = (y < 0) ? 0 : y / size;
+        return (c >= rows) ? rows - 1 : c;
+    }
+
+    int head(int cx, int cy) { return head[cy * cols + cx]; }
+    int next(int id) { return next[id]; }
+
+    void insert(int id, int x, int y) {
+        link(id, cellY(y) * cols + cellX(x));
+    }
+
+    /** Переложить слот, если центр ушёл в другую ячейку. */
+    void move(int id, int x, int y) {
+        int c = cellY(y) * cols + cellX(x);
+        if (c == cellOf[id]) return;
+        unlink(id);
+        link(id, c);
+    }
+
+    void remove(int id) { unlink(id); }
+
+    void clear() {
+        for (int i = 0; i < head.length; i++) head[i] = -1;
+        for (int i = 0; i < cellOf.length; i++) cellOf[i] = -1;
+    }
+
+    private void link(int id, int c) {
+        int h = head[c];
+        next[id] = h;
+        prev[id] = -1;
+        if (h >= 0) prev[h] = id;
+        head[c] = id;
+        cellOf[id] = c;
+    }
+
+    private void unlink(int id) {
+        int c = cellOf[id];
+        if (c < 0) return;
+        int p = prev[id], n = next[id];
+        if (p >= 0) next[p] = n; else head[c] = n;
+        if (n >= 0) prev[n] = p;
+        cellOf[id] = -1;
+    }
+}
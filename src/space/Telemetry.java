@@ -0,0 +1,109 @@
+package space;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Телеметрия одной партии: экран, гистограмма времени кадра, самые долгие
+ * кадры с моментом (мс от начала партии), пик живых астероидов и минимум
+ * свободной кучи. frame() ничего не аллоцирует; в байты партия
+ * превращается только при сохранении.
+ *
+ * Формат: MAGIC, start (long), w, h, cell, ticks, durMs, score, peakAst,
+ * freeLow (int), гистограмма (frames, totalMs, maxMs, корзины),
+ * WORST пар (ms, at).
+ */
+final class Telemetry {
+
+    private static final int MAGIC = 0x53415431;   // "SAT1"
+    static final int WORST = 5;
+
+    long start;                        // System.currentTimeMillis() начала партии
+    int w, h, cell;
+    int ticks, durMs, score;
+    int peakAst;
+    int freeLow;
+    final FrameHistogram hist = new FrameHistogram();
+    final int[] worstMs = new int[WORST], worstAt = new int[WORST];   // по убыванию ms
+
+    void begin(long now, int w, int h, int cell) {
+        start = now;
+        this.w = w; this.h = h; this.cell = cell;
+        ticks = durMs = score = peakAst = 0;
+        freeLow = Integer.MAX_VALUE;
+        hist.reset();
+        for (int i = 0; i < WORST; i++) { worstMs[i] = 0; worstAt[i] = 0; }
+    }
+
+    /** Кадр длиной ms, закончившийся в момент now. */
+    void frame(int ms, long now, int liveAst, long free) {
+        hist.add(ms);
+        durMs = (int) (now - start);
+        if (liveAst > peakAst) peakAst = liveAst;
+        if (free < freeLow) freeLow = (int) free;
+        if (ms <= worstMs[WORST - 1]) return;
+        int i = WORST - 1;
+        while (i > 0 && worstMs[i - 1] < ms) {
+            worstMs[i] = worstMs[i - 1]; worstAt[i] = worstAt[i - 1];
+            i--;
+        }
+        worstMs[i] = ms; worstAt[i] = durMs;
+    }
+
+    // ---------- (де)сериализация ----------
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bo);
+        out.writeInt(MAGIC);
+        out.writeLong(start);
+        out.writeShort(w); out.writeShort(h); out.writeShort(cell);
+        out.writeInt(ticks); out.writeInt(durMs); out.writeInt(score);
+        out.writeShort(peakAst);
+        out.writeInt(freeLow);
+        out.writeInt(hist.frames); out.writeInt((int) hist.totalMs); out.writeInt(hist.maxMs);
+        out.writeByte(hist.bucket.length);
+        for (int i = 0; i < hist.bucket.length; i++) out.writeInt(hist.bucket[i]);
+        for (int i = 0; i < WORST; i++) { out.writeShort(worstMs[i]); out.writeInt(worstAt[i]); }
+        out.close();
+        return bo.toByteArray();
+    }
+
+    void fromBytes(byte[] b) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+        if (in.readInt() != MAGIC) throw new IOException("bad telemetry");
+        start = in.readLong();
+        w = in.readShort(); h = in.readShort(); cell = in.readShort();
+        ticks = in.readInt(); durMs = in.readInt(); score = in.readInt();
+        peakAst = in.readShort();
+        freeLow = in.readInt();
+        hist.reset();
+        hist.frames = in.readInt(); hist.totalMs = in.readInt(); hist.maxMs = in.readInt();
+        int n = in.readByte();
+        for (int i = 0; i < n; i++) {
+            int v = in.readInt();
+            if (i < hist.bucket.length) hist.bucket[i] = v;
+        }
+        for (int i = 0; i < WORST; i++) { worstMs[i] = in.readShort(); worstAt[i] = in.readInt(); }
+        in.close();
+    }
+
+    /** Строки для экрана просмотра. */
+    String[] lines() {
+        String[] hl = hist.lines();
+        String[] s = new String[6 + hl.length];
+        s[0] = w + "x" + h + " cell " + cell;
+        s[1] = ticks + " ticks, " + (durMs / 1000) + " s, score " + score;
+        s[2] = "avg " + hist.avgTenths() / 10 + "." + hist.avgTenths() % 10 + " ms, max " + hist.maxMs;
+        StringBuffer sb = new StringBuffer("worst");
+        for (int i = 0; i < WORST && worstMs[i] > 0; i++)
+            sb.append(' ').append(worstMs[i]).append('@').append(worstAt[i] / 1000).append('s');
+        s[3] = sb.toString();
+        s[4] = "peak ast " + peakAst;
+        s[5] = "free low " + (freeLow >> 10) + "K";
+        for (int i = 0; i < hl.length; i++) s[6 + i] = hl[i];
+        return s;
+    }
+}